@@ -1,30 +1,37 @@
 package com.openfaas.function;
 
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.AbstractMap;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Comparator;
 import java.util.HashMap;
-import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Set;
 import java.util.Spliterators;
-import java.util.stream.Collectors;
+import java.util.function.Supplier;
 import java.util.stream.StreamSupport;
 
 import com.openfaas.model.IResponse;
 import com.openfaas.model.IRequest;
 import com.openfaas.model.Response;
 import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
 import com.shared.function.repository.*;
 import com.shared.function.routing.BaseHandler;
 import com.shared.function.routing.RouteHandler;
 import com.shared.function.DTL.ProjectDetails;
 import com.shared.function.DTL.ProjectDetails.ProjectMetadata;
 import com.shared.function.config.ProjectFetchConfig;
+import com.shared.function.service.ProjectCreationService;
 
 import jakarta.persistence.EntityNotFoundException;
+import jakarta.persistence.OptimisticLockException;
 
 import com.shared.function.entity.*;
+import com.shared.function.CacheKeys;
 import com.shared.function.JwtUtil;
 
 public class Handler extends BaseHandler {
@@ -49,9 +56,14 @@ public class Handler extends BaseHandler {
     };
 
     private final ProjectRepository projectRepository = new ProjectRepository();
-    private final UserRepository userRepository = new UserRepository();
     private final TaskStatusRepository taskStatusRepository = new TaskStatusRepository();
     private final ProjectTagRepository projectTagRepository = new ProjectTagRepository();
+    private final ProjectCreationService projectCreationService = new ProjectCreationService();
+
+    // "orm" builds /details through the entities and ProjectDetails; the default renders it in Postgres
+    private final boolean detailsFromOrm = "orm".equalsIgnoreCase(System.getenv("project-details-source"));
+    // membership found by the /details version source, reused by the handler of the same request
+    private final ThreadLocal<Map.Entry<IRequest, Boolean>> checkedMembership = new ThreadLocal<>();
 
     @Override
     public Map<String, RouteHandler> initializeRouteHandlers() {
@@ -63,19 +75,22 @@ public class Handler extends BaseHandler {
                         req -> handleCreateProject(req, new Response(),
                                 req.getHeaders().get("Authorization").substring(7)))
                 .addMethod("PUT",
-                        req -> handleUpdateProject(req, new Response(),
-                                req.getHeaders().get("Authorization").substring(7)))
+                        req -> inUnitOfWork(() -> handleUpdateProject(req, new Response(),
+                                req.getHeaders().get("Authorization").substring(7))))
+                .addMethod("PATCH",
+                        req -> inUnitOfWork(() -> handleUpdateProject(req, new Response(),
+                                req.getHeaders().get("Authorization").substring(7))))
                 .addMethod("DELETE", req -> handleDeleteProject(req, new Response(),
                         req.getHeaders().get("Authorization").substring(7))));
 
         // /users route handlers
         handlers.put("/users", new RouteHandler()
-                .addMethod("GET", req -> getProjectsByUserId(req, new Response(),
+                .addConditionalMethod("GET", this::projectsByUserIdVersion, req -> getProjectsByUserId(req, new Response(),
                         req.getHeaders().get("Authorization").substring(7))));
 
         // /details route handlers
         handlers.put("/details", new RouteHandler()
-                .addMethod("GET", req -> getProjectDetails(req, new Response(),
+                .addConditionalMethod("GET", this::projectDetailsVersion, req -> getProjectDetails(req, new Response(),
                         req.getHeaders().get("Authorization").substring(7))));
 
         // /status route handlers
@@ -84,6 +99,8 @@ public class Handler extends BaseHandler {
                         req.getHeaders().get("Authorization").substring(7)))
                 .addMethod("PUT", req -> handleUpdateStatus(req, new Response(),
                         req.getHeaders().get("Authorization").substring(7)))
+                .addMethod("PATCH", req -> handleUpdateStatus(req, new Response(),
+                        req.getHeaders().get("Authorization").substring(7)))
                 .addMethod("DELETE", req -> handleDeleteStatus(req, new Response(),
                         req.getHeaders().get("Authorization").substring(7))));
 
@@ -93,6 +110,8 @@ public class Handler extends BaseHandler {
                         req.getHeaders().get("Authorization").substring(7)))
                 .addMethod("PUT", req -> handleUpdateTag(req, new Response(),
                         req.getHeaders().get("Authorization").substring(7)))
+                .addMethod("PATCH", req -> handleUpdateTag(req, new Response(),
+                        req.getHeaders().get("Authorization").substring(7)))
                 .addMethod("DELETE", req -> handleDeleteTag(req, new Response(),
                         req.getHeaders().get("Authorization").substring(7))));
 
@@ -124,6 +143,39 @@ public class Handler extends BaseHandler {
         return "/";
     }
 
+    /**
+     * Version of the project details: the project's cache generation, which moves on every write.
+     * Only members get one, so a 304 never answers a user the details would be refused to.
+     */
+    private String projectDetailsVersion(IRequest req) {
+        try {
+            Integer pId = Integer.parseInt(req.getQuery().get("pId"));
+            Integer userId = Integer.parseInt(JwtUtil.getUserIdFromToken(req.getHeaders().get("Authorization").substring(7)));
+            boolean member = projectRepository.isMember(userId, pId);
+            checkedMembership.set(new AbstractMap.SimpleImmutableEntry<>(req, member));
+            if (!member) {
+                return null;
+            }
+            long generation = projectGeneration(pId);
+            return generation == 0 ? null : pId + "-" + generation;
+        } catch (Exception e) {
+            // let the handler report the invalid request
+            return null;
+        }
+    }
+
+    /**
+     * Version of the project list of the user in the token.
+     */
+    private String projectsByUserIdVersion(IRequest req) {
+        try {
+            Integer userId = Integer.parseInt(JwtUtil.getUserIdFromToken(req.getHeaders().get("Authorization").substring(7)));
+            return userId + "-" + projectRepository.findMemberProjectsVersion(userId);
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
     private IResponse getProjectDetails(IRequest req, Response res, String token) {
         // e.g. openfaas -> http://<ip_addr>:<port>/function/project/details?pId=1
 
@@ -134,8 +186,66 @@ public class Handler extends BaseHandler {
                 return res;
             }
 
-            Project project = projectRepository.getProjectDetails(pId);
-            if (project == null) {
+            // Optional paging of the task list, e.g. /details?pId=1&limit=100&cursor=<next_cursor>
+            boolean paged = isPageRequest(req);
+            String cursor = paged ? req.getQuery().get("cursor") : null;
+            Integer limit = paged ? pageLimit(req, res) : null;
+            if (paged) {
+                if (limit == null) {
+                    return res;
+                }
+                try {
+                    PageCursor.decode(cursor);
+                } catch (IllegalArgumentException e) {
+                    return invalidCursor(res);
+                }
+            }
+
+            // get user id from token
+            try {
+                Integer userId = Integer.parseInt(JwtUtil.getUserIdFromToken(token));
+                if (!isMember(req, userId, pId)) {
+                    res.setStatusCode(401);
+                    res.setBody(toJson(Map.of(
+                            "error", "Unauthorized",
+                            "message", "User is not a member of the project")));
+                    return res;
+                }
+            } catch (NumberFormatException e) {
+                res.setStatusCode(401);
+                res.setBody(toJson(Map.of(
+                        "error", "Unauthorized",
+                        "message", "Invalid token")));
+                return res;
+            }
+
+            Supplier<String> loader = () -> {
+                if (!detailsFromOrm) {
+                    return paged
+                            ? projectRepository.getProjectDetailsJson(pId, cursor, limit)
+                            : projectRepository.getProjectDetailsJson(pId);
+                }
+                Project project = projectRepository.getProjectDetails(pId);
+                if (project == null) {
+                    return null;
+                }
+                ProjectDetails details = new ProjectDetails(project);
+                return paged ? toJson(pageTasks(details, PageCursor.decode(cursor), limit)) : toJson(details);
+            };
+
+            // Serve from cache if present, skipping the database entirely. Without a
+            // generation no write would ever invalidate the entry, so skip the cache.
+            long generation = projectGeneration(pId);
+            String body;
+            if (generation == 0) {
+                body = loader.get();
+            } else {
+                String cacheKey = paged
+                        ? CacheKeys.projectDetailsPage(pId, generation, cursor, limit)
+                        : CacheKeys.projectDetails(pId, generation);
+                body = cacheGetOrLoad(cacheKey, CacheKeys.PROJECT_DETAILS_TTL_SECONDS, loader);
+            }
+            if (body == null) {
                 res.setStatusCode(404);
                 res.setBody(toJson(Map.of(
                         "error", "Not Found",
@@ -143,10 +253,8 @@ public class Handler extends BaseHandler {
                 return res;
             }
 
-            ProjectDetails projectDetails = new ProjectDetails(project);
-
             res.setStatusCode(200);
-            res.setBody(toJson(projectDetails));
+            res.setBody(body);
 
         } catch (Exception e) {
             res.setStatusCode(500);
@@ -159,6 +267,36 @@ public class Handler extends BaseHandler {
         return res;
     }
 
+    /**
+     * Membership of the user in the project, as already checked for this request
+     * by projectDetailsVersion, or checked now.
+     */
+    private boolean isMember(IRequest req, Integer userId, Integer pId) {
+        Map.Entry<IRequest, Boolean> checked = checkedMembership.get();
+        checkedMembership.remove();
+        if (checked != null && checked.getKey() == req) {
+            return checked.getValue();
+        }
+        return projectRepository.isMember(userId, pId);
+    }
+
+    /**
+     * Page the tasks of already loaded project details in memory, matching the
+     * shape of the SQL path: tasks in id order and a trailing next_cursor.
+     */
+    private JsonNode pageTasks(ProjectDetails details, int after, int limit) {
+        List<ProjectDetails.TaskDetails> tasks = details.getTasks().stream()
+                .filter(t -> t.getId() > after)
+                .sorted(Comparator.comparing(ProjectDetails.TaskDetails::getId))
+                .toList();
+        details.setTasks(tasks.size() > limit ? tasks.subList(0, limit) : tasks);
+        ObjectNode node = objectMapper.valueToTree(details);
+        if (tasks.size() > limit) {
+            node.put("next_cursor", PageCursor.encode(tasks.get(limit - 1).getId()));
+        }
+        return node;
+    }
+
     private IResponse getProjectsByUserId(IRequest req, Response res, String token) {
         try {
             // e.g. openfaas -> http://<ip_addr>:<port>/function/project/
@@ -182,10 +320,25 @@ public class Handler extends BaseHandler {
 
             System.out.println("userId retrieved: " + userId);
 
-            // Retrieve projects from repository
+            // Retrieve projects from repository, one page at a time when the client asks for it
+            boolean paged = isPageRequest(req);
             List<ProjectMetadata> projectList;
+            String nextCursor = null;
             try {
-                projectList = projectRepository.findByMember(userId).stream().map(p -> new ProjectMetadata(p, false)).toList();
+                if (paged) {
+                    Integer limit = pageLimit(req, res);
+                    if (limit == null) {
+                        return res;
+                    }
+                    Page<Project> page = projectRepository.findByMember(userId, req.getQuery().get("cursor"), limit);
+                    projectList = page.getItems().stream().map(p -> new ProjectMetadata(p, false)).toList();
+                    nextCursor = page.getNextCursor();
+                } else {
+                    projectList = new ArrayList<>();
+                    projectRepository.forEachMemberProject(userId, projectList::add);
+                }
+            } catch (IllegalArgumentException e) {
+                return invalidCursor(res);
             } catch (Exception e) {
                 System.err.println("ERROR: Database operation failed: " + e.getMessage());
                 res.setStatusCode(503);
@@ -196,8 +349,8 @@ public class Handler extends BaseHandler {
                 return res;
             }
 
-            // Handle empty result
-            if (projectList == null || projectList.isEmpty()) {
+            // Handle empty result; a later page may legitimately be empty
+            if (!paged && (projectList == null || projectList.isEmpty())) {
                 res.setStatusCode(404);
                 res.setBody(toJson(Map.of(
                         "error", "Not Found",
@@ -207,10 +360,14 @@ public class Handler extends BaseHandler {
             }
 
             // Return successful response
-            String jsonResponse = toJson(Map.of(
-                    "status", "success",
-                    "user_id", userId,
-                    "projects", projectList));
+            Map<String, Object> body = new LinkedHashMap<>();
+            body.put("status", "success");
+            body.put("user_id", userId);
+            body.put("projects", projectList);
+            if (paged) {
+                body.put("next_cursor", nextCursor);
+            }
+            String jsonResponse = toJson(body);
 
             res.setBody(jsonResponse);
             return res;
@@ -240,42 +397,37 @@ public class Handler extends BaseHandler {
 
             // Get the userId from the token
             Integer userId = Integer.parseInt(JwtUtil.getUserIdFromToken(token));
-            User createdBy = userRepository.findById(userId);
-            if (createdBy == null) {
-                res.setStatusCode(400);
-                res.setBody(toJson(Map.of("error", "Bad Request", "message", "User not found")));
-                return res;
-            }
 
             // Create the project
             Project newProject = new Project();
             newProject.setName(rootNode.path("name").asText());
             newProject.setDescription(rootNode.path("description").asText());
-            newProject.setCreatedBy(createdBy);
 
             // Get the members from the request
             JsonNode membersNode = rootNode.path("members");
-            Set<User> members = new HashSet<>();
+            List<Integer> memberIds = new ArrayList<>();
             if (membersNode.isArray() && membersNode.size() > 0) {
-                List<Integer> memberIds = StreamSupport
+                memberIds = StreamSupport
                         .stream(Spliterators.spliteratorUnknownSize(membersNode.iterator(), 0), false)
                         .map(JsonNode::asInt)
                         .filter(id -> id > 0 && id != userId)
                         .toList();
-
-                members = userRepository.findAllById(memberIds).stream().collect(Collectors.toSet());
-            } 
-            members.add(createdBy);
-            newProject.setMembers(members);
-
-            
-            Project createdProject = projectRepository.createProject(newProject);
+            }
 
             // Set the default status
-            Arrays.stream(DEFAULT_STATUSES).forEach(status -> {
-                TaskStatus defaultStatus = new TaskStatus(status.name, status.order, status.description, status.color, createdProject);
-                taskStatusRepository.createStatus(defaultStatus);
-            });
+            List<TaskStatus> defaultStatuses = Arrays.stream(DEFAULT_STATUSES)
+                    .map(status -> new TaskStatus(status.name, status.order, status.description, status.color, null))
+                    .toList();
+
+            // Project, members and statuses are written in one transaction
+            Project createdProject;
+            try {
+                createdProject = projectCreationService.createProject(newProject, userId, memberIds, defaultStatuses);
+            } catch (EntityNotFoundException e) {
+                res.setStatusCode(400);
+                res.setBody(toJson(Map.of("error", "Bad Request", "message", "User not found")));
+                return res;
+            }
 
             res.setStatusCode(201);
             res.setBody(toJson(Map.of("success", true,
@@ -300,53 +452,68 @@ public class Handler extends BaseHandler {
             if (pId == null) {
                 return res;
             }
-            Project existingProject = projectRepository.findById(pId);
-
-            if (existingProject == null) {
-                res.setStatusCode(404);
-                res.setBody(toJson(Map.of("error", "Project not found with ID: " + pId)));
-                return res;
-            }
-
             JsonNode rootNode = objectMapper.readTree(req.getBody());
 
+            // Only the fields that were sent are written; the project is never loaded
+            Map<String, Object> changes = new LinkedHashMap<>();
             if (rootNode.has("name")) {
-                existingProject.setName(rootNode.path("name").asText());
+                changes.put("name", rootNode.path("name").asText());
             }
 
             if (rootNode.has("description")) {
-                existingProject.setDescription(rootNode.path("description").asText());
+                changes.put("description", rootNode.path("description").asText());
             }
 
+            // Validate the members before anything is written
+            List<Integer> memberIds = null;
             if (rootNode.has("members")) {
                 JsonNode memberNode = rootNode.path("members");
-                if (memberNode.isArray()) {
-                    List<Integer> memberIds = StreamSupport
-                            .stream(Spliterators.spliteratorUnknownSize(memberNode.iterator(), 0), false)
-                            .map(JsonNode::asInt)
-                            .filter(id -> id > 0)
-                            .toList();
-                    try {
-                        projectRepository.updateProjectMembers(pId, memberIds);
-                    } catch (EntityNotFoundException e) {
-                        res.setStatusCode(400);
-                        res.setBody(toJson(Map.of("error", e.getMessage())));
-                        return res;
-                    } catch (Exception e) {
-                        res.setStatusCode(500);
-                        res.setBody(toJson(Map.of("error", "Failed to assign users: " + e.getMessage())));
-                        return res;
-                    }
-                } else {
+                if (!memberNode.isArray()) {
                     res.setStatusCode(400);
                     res.setBody(toJson(Map.of("error", "members should be an array of user IDs")));
                     return res;
                 }
+                memberIds = StreamSupport
+                        .stream(Spliterators.spliteratorUnknownSize(memberNode.iterator(), 0), false)
+                        .map(JsonNode::asInt)
+                        .filter(id -> id > 0)
+                        .toList();
+            }
+
+            // The route runs in a unit of work, so a failure below also undoes the patch
+            Instant updatedAt;
+            try {
+                updatedAt = projectRepository.patchProject(pId, changes, expectedVersion(rootNode));
+            } catch (EntityNotFoundException e) {
+                res.setStatusCode(404);
+                res.setBody(toJson(Map.of("error", "Project not found with ID: " + pId)));
+                return res;
+            } catch (OptimisticLockException e) {
+                return versionConflict(res, e.getMessage());
+            } catch (DateTimeParseException e) {
+                res.setStatusCode(400);
+                res.setBody(toJson(Map.of("error", "Invalid updated_at format")));
+                return res;
+            }
+            invalidateProject(pId);
+
+            if (memberIds != null) {
+                try {
+                    projectRepository.updateProjectMembers(pId, memberIds);
+                } catch (EntityNotFoundException e) {
+                    res.setStatusCode(400);
+                    res.setBody(toJson(Map.of("error", e.getMessage())));
+                    return res;
+                } catch (Exception e) {
+                    res.setStatusCode(500);
+                    res.setBody(toJson(Map.of("error", "Failed to assign users: " + e.getMessage())));
+                    return res;
+                }
             }
-            Project updatedProject = projectRepository.updateProject(existingProject);
 
             res.setStatusCode(200);
-            res.setBody(toJson(Map.of("success", true, "message", "Project updated successfully", "id", updatedProject.getId())));
+            res.setBody(toJson(Map.of("success", true, "message", "Project updated successfully", "id", pId,
+                    "updated_at", updatedAt.toString())));
         } catch (Exception e) {
             res.setStatusCode(500);
             res.setBody(toJson(Map.of("error", "Failed to update project: " + e.getMessage())));
@@ -396,16 +563,13 @@ public class Handler extends BaseHandler {
 
             System.out.println("Attempting to delete p with ID: " + pId);
 
-            // Check if project exists
-            Project existingProject = projectRepository.findById(pId);
-            if (existingProject == null) {
+            // Delete the project, reporting a missing one from the affected row count
+            if (!projectRepository.deleteProject(pId)) {
                 res.setStatusCode(404);
                 res.setBody(toJson(Map.of("error", "Project not found with ID: " + pId)));
                 return res;
             }
-
-            // Delete the project
-            projectRepository.deleteProject(pId);
+            invalidateProject(pId);
 
             // Prepare success response
             res.setStatusCode(200);
@@ -464,6 +628,7 @@ public class Handler extends BaseHandler {
             status.setProject(project);
 
             TaskStatus createdStatus = taskStatusRepository.createStatus(status);
+            invalidateProject(pId);
 
             res.setStatusCode(201);
             res.setBody(toJson(
@@ -487,14 +652,8 @@ public class Handler extends BaseHandler {
                 return res;
             }
 
-            // Find the status
-            TaskStatus status = taskStatusRepository.findById(statusId);
-            if (status == null) {
-                res.setStatusCode(404);
-                res.setBody(
-                        toJson(Map.of("error", "Not Found", "message", "Status with id " + statusId + " not found")));
-                return res;
-            }
+            // Only the fields that were sent are written; the status is never loaded
+            Map<String, Object> changes = new LinkedHashMap<>();
 
             // validate the color is a valid hex color if it is provided which is optional
             if (rootNode.has("color")) {
@@ -503,23 +662,32 @@ public class Handler extends BaseHandler {
                     res.setBody(toJson(Map.of("error", "Bad Request", "message", "Color must be a valid hex color")));
                     return res;
                 } else {
-                    status.setColor(rootNode.path("color").asText());
+                    changes.put("color", rootNode.path("color").asText());
                 }
             }
 
             if (rootNode.has("name")) {
-                status.setStatusName(rootNode.path("name").asText());
+                changes.put("status_name", rootNode.path("name").asText());
             }
 
             if (rootNode.has("description")) {
-                status.setDescription(rootNode.path("description").asText());
+                changes.put("description", rootNode.path("description").asText());
             }
 
-            TaskStatus updatedStatus = taskStatusRepository.updateStatus(status);
+            Integer projectId;
+            try {
+                projectId = taskStatusRepository.patchStatus(statusId, changes);
+            } catch (EntityNotFoundException e) {
+                res.setStatusCode(404);
+                res.setBody(
+                        toJson(Map.of("error", "Not Found", "message", "Status with id " + statusId + " not found")));
+                return res;
+            }
+            invalidateProject(projectId);
 
             res.setStatusCode(200);
             res.setBody(toJson(
-                    Map.of("success", true, "message", "Status updated successfully", "id", updatedStatus.getId())));
+                    Map.of("success", true, "message", "Status updated successfully", "id", statusId)));
             return res;
         } catch (Exception e) {
             res.setStatusCode(500);
@@ -535,6 +703,15 @@ public class Handler extends BaseHandler {
                 return res;
             }
 
+            // Look up the owning project first so its cache can be invalidated
+            TaskStatus status = taskStatusRepository.findById(statusId);
+            if (status == null) {
+                res.setStatusCode(404);
+                res.setBody(
+                        toJson(Map.of("error", "Not Found", "message", "Status with id " + statusId + " not found")));
+                return res;
+            }
+
             try {
                 taskStatusRepository.deleteStatus(statusId);
             } catch (IllegalArgumentException e) {
@@ -543,6 +720,7 @@ public class Handler extends BaseHandler {
                         toJson(Map.of("error", "Not Found", "message", "Status with id " + statusId + " not found")));
                 return res;
             }
+            invalidateProject(status.getProject().getId());
 
             res.setStatusCode(200);
             res.setBody(toJson(Map.of("success", true, "message", "Status deleted successfully", "id", statusId)));
@@ -598,6 +776,7 @@ public class Handler extends BaseHandler {
             tag.setProject(project);
 
             ProjectTag createdTag = projectTagRepository.createTag(tag);
+            invalidateProject(pId);
 
             res.setStatusCode(201);
             res.setBody(
@@ -617,17 +796,12 @@ public class Handler extends BaseHandler {
                 return res;
             }
 
-            ProjectTag tag = projectTagRepository.findById(tagId);
-            if (tag == null) {
-                res.setStatusCode(404);
-                res.setBody(toJson(Map.of("error", "Not Found", "message", "Tag with id " + tagId + " not found")));
-                return res;
-            }
-
             JsonNode rootNode = objectMapper.readTree(req.getBody());
 
+            // Only the fields that were sent are written; the tag is never loaded
+            Map<String, Object> changes = new LinkedHashMap<>();
             if (rootNode.has("name")) {
-                tag.setTagName(rootNode.path("name").asText());
+                changes.put("tag_name", rootNode.path("name").asText());
             }
 
             if (rootNode.has("color")) {
@@ -636,15 +810,23 @@ public class Handler extends BaseHandler {
                     res.setBody(toJson(Map.of("error", "Bad Request", "message", "Color must be a valid hex color")));
                     return res;
                 } else {
-                    tag.setColor(rootNode.path("color").asText());
+                    changes.put("color", rootNode.path("color").asText());
                 }
             }
 
-            ProjectTag updatedTag = projectTagRepository.updateTag(tag);
+            Integer projectId;
+            try {
+                projectId = projectTagRepository.patchTag(tagId, changes);
+            } catch (EntityNotFoundException e) {
+                res.setStatusCode(404);
+                res.setBody(toJson(Map.of("error", "Not Found", "message", "Tag with id " + tagId + " not found")));
+                return res;
+            }
+            invalidateProject(projectId);
 
             res.setStatusCode(200);
             res.setBody(
-                    toJson(Map.of("success", true, "message", "Tag updated successfully", "id", updatedTag.getId())));
+                    toJson(Map.of("success", true, "message", "Tag updated successfully", "id", tagId)));
             return res;
         } catch (Exception e) {
             res.setStatusCode(500);
@@ -660,6 +842,14 @@ public class Handler extends BaseHandler {
                 return res;
             }
 
+            // Look up the owning project first so its cache can be invalidated
+            ProjectTag tag = projectTagRepository.findById(tagId);
+            if (tag == null) {
+                res.setStatusCode(404);
+                res.setBody(toJson(Map.of("error", "Not Found", "message", "Tag with id " + tagId + " not found")));
+                return res;
+            }
+
             try {
                 projectTagRepository.deleteTag(tagId);
             } catch (IllegalArgumentException e) {
@@ -667,6 +857,7 @@ public class Handler extends BaseHandler {
                 res.setBody(toJson(Map.of("error", "Not Found", "message", "Tag with id " + tagId + " not found")));
                 return res;
             }
+            invalidateProject(tag.getProject().getId());
 
             res.setStatusCode(200);
             res.setBody(toJson(Map.of("success", true, "message", "Tag deleted successfully", "id", tagId)));
@@ -0,0 +1,18 @@
+package com.shared.function;
+
+import java.util.List;
+import java.util.Map;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Result of a multi-key cache read: the values that were found, keyed by cache
+ * key, and the keys that missed so the caller can load them in one query.
+ */
+@Getter
+@AllArgsConstructor
+public class CacheBatch<T> {
+    private final Map<String, T> found;
+    private final List<String> missing;
+}
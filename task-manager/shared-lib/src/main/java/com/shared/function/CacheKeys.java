@@ -0,0 +1,55 @@
+package com.shared.function;
+
+/**
+ * Central place for the Redis key layout shared by all functions.
+ * Writers in one function must invalidate the keys read by another, so the
+ * names are built here instead of inline in the handlers.
+ */
+public final class CacheKeys {
+    public static final long PROJECT_DETAILS_TTL_SECONDS = 300; // 5 minutes
+    public static final long USER_OVERVIEW_TTL_SECONDS = 600; // 10 minutes
+
+    private CacheKeys() {
+    }
+
+    /**
+     * Generation counter of a project. Every cached view of the project embeds
+     * it in its key, so incrementing it invalidates all of them in one step.
+     * @param projectId
+     * @return counter key
+     */
+    public static String projectGeneration(Integer projectId) {
+        return "project:" + projectId + ":gen";
+    }
+
+    /**
+     * Key of the serialized ProjectDetails response of a project.
+     * @param projectId
+     * @param generation current value of the project generation counter
+     * @return cache key
+     */
+    public static String projectDetails(Integer projectId, long generation) {
+        return "project:" + projectId + ":g" + generation + ":details";
+    }
+
+    /**
+     * Key of one page of the ProjectDetails response of a project.
+     * @param projectId
+     * @param generation current value of the project generation counter
+     * @param cursor cursor of the previous page, null for the first page
+     * @param limit page size
+     * @return cache key
+     */
+    public static String projectDetailsPage(Integer projectId, long generation, String cursor, int limit) {
+        return projectDetails(projectId, generation) + ":" + (cursor == null ? "" : cursor) + ":" + limit;
+    }
+
+    /**
+     * Key of the UserOverview of a user.
+     * @param userId
+     * @return cache key
+     */
+    public static String userOverview(Integer userId) {
+        return "user:" + userId + ":overview";
+    }
+}
@@ -0,0 +1,33 @@
+package com.shared.function;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * A cached value together with the metadata used for probabilistic early refresh.
+ */
+@Getter
+@AllArgsConstructor
+public class CachedValue {
+    private final String value;
+    /** How long the value took to compute, in milliseconds (0 if unknown). */
+    private final long computeMillis;
+    /** Epoch millisecond at which the entry expires (0 if unknown). */
+    private final long expiresAtMillis;
+
+    /**
+     * XFetch: decide whether this request should rebuild the value ahead of its
+     * expiry. The probability rises as expiry approaches and is higher for values
+     * that are slow to compute, so one request refreshes a hot key before it
+     * disappears instead of all of them after.
+     * @param beta values above 1 favour earlier refreshes
+     * @return true if the caller should recompute now
+     */
+    public boolean shouldRefreshEarly(double beta) {
+        if (computeMillis <= 0 || expiresAtMillis <= 0) {
+            return false;
+        }
+        double gap = computeMillis * beta * -Math.log(Math.random());
+        return System.currentTimeMillis() + gap >= expiresAtMillis;
+    }
+}
@@ -0,0 +1,181 @@
+package com.shared.function;
+
+import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import com.zaxxer.hikari.metrics.IMetricsTracker;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.engine.jdbc.connections.spi.ConnectionProvider;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+
+/**
+ * Hikari pool settings, warmup and metrics for the JPA factories.
+ *
+ * Each pool is sized from the environment, so every function can be given as
+ * many connections as its concurrency needs: (prefix)-max-size (default 1),
+ * (prefix)-min-idle (default the max size, a fixed-size pool) and
+ * (prefix)-connection-timeout-ms, with the prefix db-pool for the primary and
+ * db-replica-pool for the read replica. Pools are filled at startup instead of
+ * on the first requests.
+ *
+ * The metrics of a pool are its active, idle and total connections, the
+ * requests waiting for one, and how long getting a connection took. They are
+ * logged every db-pool-metrics-log-seconds (default 60, 0 to disable), idle or
+ * not, and available from metrics(). Hikari also registers each pool's
+ * counters as JMX MBeans under com.zaxxer.hikari:type=Pool (pool name).
+ */
+public final class ConnectionPools {
+    private static final long DEFAULT_MAX_SIZE = 1;
+    private static final long DEFAULT_CONNECTION_TIMEOUT_MILLIS = 30000;
+    private static final long DEFAULT_METRICS_LOG_SECONDS = 60;
+
+    private static final long metricsLogSeconds = Env.readLong("db-pool-metrics-log-seconds", DEFAULT_METRICS_LOG_SECONDS);
+    private static final Map<String, Pool> pools = new ConcurrentHashMap<>();
+    private static ScheduledExecutorService metricsLogger;
+
+    private ConnectionPools() {
+    }
+
+    /**
+     * Hibernate properties that configure one Hikari pool.
+     * @param poolName name of the pool in logs and metrics
+     * @param envPrefix prefix of the environment variables that size it
+     */
+    static Map<String, Object> settings(String poolName, String envPrefix) {
+        long maxSize = Env.readLong(envPrefix + "-max-size", DEFAULT_MAX_SIZE);
+        Map<String, Object> properties = new LinkedHashMap<>();
+        // the Hikari provider only accepts String values
+        properties.put("hibernate.hikari.poolName", poolName);
+        properties.put("hibernate.hikari.maximumPoolSize", String.valueOf(maxSize));
+        properties.put("hibernate.hikari.minimumIdle", String.valueOf(Env.readLong(envPrefix + "-min-idle", maxSize)));
+        properties.put("hibernate.hikari.connectionTimeout",
+                String.valueOf(Env.readLong(envPrefix + "-connection-timeout-ms", DEFAULT_CONNECTION_TIMEOUT_MILLIS)));
+        properties.put("hibernate.hikari.registerMbeans", "true");
+        return properties;
+    }
+
+    /**
+     * Start tracking the metrics of a factory's pool and open its minimum idle
+     * connections now. A failure is logged and left to the pool to retry.
+     */
+    static void warmUp(EntityManagerFactory emf) {
+        HikariDataSource dataSource = emf.unwrap(SessionFactoryImplementor.class)
+                .getServiceRegistry()
+                .requireService(ConnectionProvider.class)
+                .unwrap(HikariDataSource.class);
+        Pool pool = new Pool(dataSource);
+        pools.put(dataSource.getPoolName(), pool);
+        dataSource.setMetricsTrackerFactory((poolName, poolStats) -> pool);
+        startMetricsLogger();
+
+        long start = System.nanoTime();
+        // holding the connections makes the pool open new ones instead of reusing one
+        List<Connection> connections = new ArrayList<>();
+        try {
+            for (int i = 0; i < dataSource.getMinimumIdle(); i++) {
+                connections.add(dataSource.getConnection());
+            }
+        } catch (Exception e) {
+            System.err.println("WARN: Warming pool " + dataSource.getPoolName() + " failed: " + e.getMessage());
+        } finally {
+            for (Connection connection : connections) {
+                try {
+                    connection.close();
+                } catch (Exception e) {
+                    System.err.println("WARN: Returning a warmup connection failed: " + e.getMessage());
+                }
+            }
+        }
+        System.out.println("INFO: Pool " + dataSource.getPoolName() + " opened " + connections.size()
+                + " connections in " + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) + " ms");
+    }
+
+    /**
+     * Current metrics of every open pool, by pool name.
+     */
+    public static Map<String, Map<String, Object>> metrics() {
+        Map<String, Map<String, Object>> metrics = new LinkedHashMap<>();
+        pools.forEach((name, pool) -> {
+            if (!pool.dataSource.isClosed()) {
+                metrics.put(name, pool.snapshot());
+            }
+        });
+        return metrics;
+    }
+
+    /**
+     * Log the metrics on a timer of their own, so a pool that hands out no
+     * connections, because it is idle or every caller is blocked, still reports.
+     */
+    private static synchronized void startMetricsLogger() {
+        if (metricsLogger != null || metricsLogSeconds <= 0) {
+            return;
+        }
+        metricsLogger = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "db-pool-metrics");
+            thread.setDaemon(true);
+            return thread;
+        });
+        metricsLogger.scheduleAtFixedRate(() -> {
+            try {
+                metrics().forEach((name, metrics) -> System.out.println("INFO: Pool " + name + " " + metrics));
+            } catch (Exception e) {
+                System.err.println("WARN: Logging pool metrics failed: " + e.getMessage());
+            }
+        }, metricsLogSeconds, metricsLogSeconds, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Metrics of one pool. Hikari reports to it every time a connection is handed out.
+     */
+    private static final class Pool implements IMetricsTracker {
+        private final HikariDataSource dataSource;
+        private final AtomicLong acquired = new AtomicLong();
+        private final AtomicLong acquireNanos = new AtomicLong();
+        private final AtomicLong maxAcquireNanos = new AtomicLong();
+        private final AtomicLong timeouts = new AtomicLong();
+
+        Pool(HikariDataSource dataSource) {
+            this.dataSource = dataSource;
+        }
+
+        @Override
+        public void recordConnectionAcquiredNanos(long elapsedAcquiredNanos) {
+            acquired.incrementAndGet();
+            acquireNanos.addAndGet(elapsedAcquiredNanos);
+            maxAcquireNanos.accumulateAndGet(elapsedAcquiredNanos, Math::max);
+        }
+
+        @Override
+        public void recordConnectionTimeout() {
+            timeouts.incrementAndGet();
+        }
+
+        Map<String, Object> snapshot() {
+            HikariPoolMXBean bean = dataSource.getHikariPoolMXBean();
+            long count = acquired.get();
+            Map<String, Object> snapshot = new LinkedHashMap<>();
+            snapshot.put("active", bean.getActiveConnections());
+            snapshot.put("idle", bean.getIdleConnections());
+            snapshot.put("total", bean.getTotalConnections());
+            snapshot.put("max", dataSource.getMaximumPoolSize());
+            snapshot.put("waiting", bean.getThreadsAwaitingConnection());
+            snapshot.put("acquired", count);
+            snapshot.put("acquire_avg_ms", count == 0 ? 0.0 : acquireNanos.get() / 1e6 / count);
+            snapshot.put("acquire_max_ms", maxAcquireNanos.get() / 1e6);
+            snapshot.put("timeouts", timeouts.get());
+            return snapshot;
+        }
+    }
+}
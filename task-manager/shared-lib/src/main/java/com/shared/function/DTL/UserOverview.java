@@ -1,12 +1,16 @@
 package com.shared.function.DTL;
 
+import lombok.AllArgsConstructor;
 import lombok.Getter;
+import lombok.NoArgsConstructor;
 import lombok.Setter;
 
 import com.shared.function.entity.User;
 
 @Getter
 @Setter
+@NoArgsConstructor
+@AllArgsConstructor
 public class UserOverview {
     private Integer id;
     private String name;
@@ -0,0 +1,28 @@
+package com.shared.function;
+
+/**
+ * Numeric settings read from the function's environment variables.
+ */
+final class Env {
+    private Env() {
+    }
+
+    /**
+     * Read a long setting, falling back to the default when it is unset, blank or not a number.
+     * @param name The environment variable.
+     * @param defaultValue The value to use when the variable has no valid value.
+     * @return the setting
+     */
+    static long readLong(String name, long defaultValue) {
+        String value = System.getenv(name);
+        if (value == null || value.isBlank()) {
+            return defaultValue;
+        }
+        try {
+            return Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            System.err.println("Invalid value for " + name + ": " + value);
+            return defaultValue;
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package com.shared.function;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.shared.function.config.FetchConfig;
+import com.shared.function.config.ProjectFetchConfig;
+import com.shared.function.config.TaskFetchConfig;
+import com.shared.function.config.UserFetchConfig;
+import com.shared.function.entity.Project;
+import com.shared.function.entity.Task;
+import com.shared.function.entity.User;
+
+import jakarta.persistence.CacheRetrieveMode;
+import jakarta.persistence.EntityGraph;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.jpa.AvailableHints;
+
+/**
+ * Entity graphs for every combination of fetch flags, built once at bootstrap.
+ * A fetch config selects its graph by fetch mask, so repositories pass a load
+ * graph hint instead of building JOIN FETCH clauses into the query string.
+ *
+ * Graphs are registered as named graphs "(entity).fetch.(mask)", e.g.
+ * "Task.fetch.31", and are not modified after registration. A graph only
+ * applies to sessions of the factory it was built for, so each factory
+ * (primary and read replica) has its own set.
+ */
+public final class FetchGraphs {
+    private static final Map<EntityManagerFactory, Map<Class<?>, EntityGraph<?>[]>> graphs = new ConcurrentHashMap<>();
+
+    private FetchGraphs() {
+    }
+
+    static void register(EntityManagerFactory emf) {
+        // graphs are created through an entity manager but belong to the factory
+        Map<Class<?>, EntityGraph<?>[]> byType = new HashMap<>();
+        try (EntityManager em = emf.createEntityManager()) {
+            byType.put(Project.class, register(emf, em, Project.class, ProjectFetchConfig.ATTRIBUTES));
+            byType.put(Task.class, register(emf, em, Task.class, TaskFetchConfig.ATTRIBUTES));
+            byType.put(User.class, register(emf, em, User.class, UserFetchConfig.ATTRIBUTES));
+        }
+        graphs.put(emf, byType);
+    }
+
+    private static <T> EntityGraph<?>[] register(EntityManagerFactory emf, EntityManager em, Class<T> type,
+            List<String> attributes) {
+        EntityGraph<?>[] byMask = new EntityGraph<?>[1 << attributes.size()];
+        for (int mask = 0; mask < byMask.length; mask++) {
+            EntityGraph<T> graph = em.createEntityGraph(type);
+            for (int i = 0; i < attributes.size(); i++) {
+                if ((mask & (1 << i)) != 0) {
+                    graph.addAttributeNodes(attributes.get(i));
+                }
+            }
+            emf.addNamedEntityGraph(type.getSimpleName() + ".fetch." + mask, graph);
+            byMask[mask] = graph;
+        }
+        return byMask;
+    }
+
+    /**
+     * The load graph for a fetch config. The graph of a config that fetches no
+     * relationships is empty and leaves the mapping's fetch types in effect.
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> EntityGraph<T> of(EntityManager em, Class<T> type, FetchConfig fetchConfig) {
+        return (EntityGraph<T>) graphs.get(em.getEntityManagerFactory()).get(type)[fetchConfig.fetchMask()];
+    }
+
+    /**
+     * Find hints that apply the load graph for a fetch config. A config that
+     * fetches no relationships gets no hints, so the find can be served from the
+     * second-level cache; any other config skips the cache, whose entries do not
+     * hold the relationships to fetch.
+     */
+    public static Map<String, Object> hints(EntityManager em, Class<?> type, FetchConfig fetchConfig) {
+        if (fetchConfig.fetchMask() == 0) {
+            return Map.of();
+        }
+        return Map.of(AvailableHints.HINT_SPEC_LOAD_GRAPH, of(em, type, fetchConfig),
+                AvailableHints.HINT_SPEC_CACHE_RETRIEVE_MODE, CacheRetrieveMode.BYPASS);
+    }
+}
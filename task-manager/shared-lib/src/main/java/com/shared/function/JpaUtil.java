@@ -6,31 +6,163 @@ import jakarta.persistence.Persistence;
 
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import javax.cache.CacheManager;
 
 public class JpaUtil {
+    // Rows per round trip when streaming large result sets through a cursor
+    public static final int STREAM_FETCH_SIZE = 500;
+    // How long after a write reads stay on the primary, so they see it despite replica lag
+    private static final long DEFAULT_REPLICA_STICKY_MILLIS = 2000;
+
     private static final EntityManagerFactory emf;
+    // Read replica, or null if none is configured and reads use the primary
+    private static final EntityManagerFactory replicaEmf;
+    private static final long replicaStickyNanos;
     private static final Secret secret = new Secret();
+    private static volatile boolean written;
+    private static volatile long lastWriteNanos;
+    private static final ThreadLocal<Boolean> primaryReads = new ThreadLocal<>();
 
     static {
         try {
             // Read OpenFaaS secrets
             String jdbcUrl = secret.getSecret("db-connection-string");
             
-            // JPA properties
-            Map<String, String> properties = new HashMap<>();
+            // JPA properties; only the primary uses the second-level cache
+            CacheManager cacheManager = SecondLevelCache.createCacheManager();
+            Map<String, Object> properties = new HashMap<>(ConnectionPools.settings("primary", "db-pool"));
             properties.put("jakarta.persistence.jdbc.url", jdbcUrl);
+            properties.put("hibernate.javax.cache.cache_manager", cacheManager);
 
             emf = Persistence.createEntityManagerFactory("serverless-pu", properties);
+            ConnectionPools.warmUp(emf);
+            FetchGraphs.register(emf);
+            SecondLevelCacheSync.register(emf);
+            replicaEmf = createReplicaFactory();
+            replicaStickyNanos = TimeUnit.MILLISECONDS.toNanos(Env.readLong("db-replica-sticky-ms",
+                    DEFAULT_REPLICA_STICKY_MILLIS));
 
         } catch (Exception e) {
             throw new RuntimeException("JPA initialization failed", e);
         }
     }
 
+    private static EntityManagerFactory createReplicaFactory() {
+        String jdbcUrl = secret.getSecret("db-replica-connection-string");
+        if (jdbcUrl == null || jdbcUrl.isBlank()) {
+            System.out.println("INFO: No read replica configured, reads use the primary");
+            return null;
+        }
+        try {
+            Map<String, Object> properties = new HashMap<>(ConnectionPools.settings("replica", "db-replica-pool"));
+            properties.put("jakarta.persistence.jdbc.url", jdbcUrl);
+            // rows of a lagging replica must not refill regions another instance's write just evicted
+            properties.put("hibernate.cache.use_second_level_cache", "false");
+            properties.put("hibernate.hikari.readOnly", "true");
+            EntityManagerFactory replica = Persistence.createEntityManagerFactory("serverless-pu", properties);
+            ConnectionPools.warmUp(replica);
+            FetchGraphs.register(replica);
+            return replica;
+        } catch (Exception e) {
+            // a missing replica must not take the function down with it
+            System.err.println("ERROR: Read replica unavailable, reads use the primary: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * EntityManager for one repository call: the shared one of the current
+     * UnitOfWork if one is open, otherwise a new one owned by the caller.
+     */
     public static EntityManager getEntityManager() {
+        EntityManager shared = UnitOfWork.currentEntityManager();
+        return shared != null ? shared : emf.createEntityManager();
+    }
+
+    /**
+     * EntityManager for a read-only repository call. It reads from the replica,
+     * except inside a UnitOfWork or readFromPrimary, when no replica is
+     * configured, or within the sticky window after a write (see markWrite),
+     * where it reads from the primary. Callers must not write through it.
+     */
+    public static EntityManager getReadEntityManager() {
+        EntityManager shared = UnitOfWork.currentEntityManager();
+        if (shared != null) {
+            return shared;
+        }
+        if (replicaEmf == null || primaryReads.get() != null || recentlyWritten()) {
+            return emf.createEntityManager();
+        }
+        return replicaEmf.createEntityManager();
+    }
+
+    /**
+     * Record that this instance is writing, so reads go to the primary until the
+     * sticky window (db-replica-sticky-ms) has passed since the last call.
+     */
+    public static void markWrite() {
+        lastWriteNanos = System.nanoTime();
+        written = true;
+    }
+
+    /**
+     * Run reads that must see every committed write on the primary. The sticky
+     * window only covers writes of this instance, so results that outlive the
+     * request, such as versions and entries of the shared Redis cache, must not
+     * come from a replica that has not replayed another instance's write yet.
+     * @param reads
+     * @return the result of reads
+     */
+    public static <T> T readFromPrimary(Supplier<T> reads) {
+        if (primaryReads.get() != null) {
+            return reads.get();
+        }
+        primaryReads.set(Boolean.TRUE);
+        try {
+            return reads.get();
+        } finally {
+            primaryReads.remove();
+        }
+    }
+
+    private static boolean recentlyWritten() {
+        return written && System.nanoTime() - lastWriteNanos < replicaStickyNanos;
+    }
+
+    static EntityManager createEntityManager() {
         return emf.createEntityManager();
     }
 
+    /**
+     * Drop an entity from the second-level cache of every replica once the
+     * current transaction commits. Writes through Hibernate do this themselves;
+     * native SQL and JDBC writes to cached tables must call it.
+     */
+    public static void evict(Class<?> type, Object id) {
+        UnitOfWork.afterCommit(() -> SecondLevelCacheSync.evictEntity(type, id));
+    }
+
+    /**
+     * Drop every cached instance of an entity on every replica once the current
+     * transaction commits.
+     */
+    public static void evictAll(Class<?> type) {
+        UnitOfWork.afterCommit(() -> SecondLevelCacheSync.evictEntities(type));
+    }
+
+    /**
+     * Drop one owner's cached collection, e.g. Project.members, on every replica
+     * once the current transaction commits.
+     * @param role the collection role, e.g. "com.shared.function.entity.Project.members"
+     * @param ownerId id of the entity owning the collection
+     */
+    public static void evictCollection(String role, Object ownerId) {
+        UnitOfWork.afterCommit(() -> SecondLevelCacheSync.evictCollection(role, ownerId));
+    }
+
     public static void ping() {
         try {
             getEntityManager().createNativeQuery("SELECT 1").getSingleResult();
@@ -41,6 +173,9 @@ public class JpaUtil {
     }
 
     public static void shutdown() {
+        if (replicaEmf != null && replicaEmf.isOpen()) {
+            replicaEmf.close();
+        }
         if (emf != null && emf.isOpen()) {
             emf.close();
         }
@@ -1,33 +1,77 @@
 package com.shared.function;
 
+import io.lettuce.core.KeyValue;
+import io.lettuce.core.RedisChannelHandler;
 import io.lettuce.core.RedisClient;
+import io.lettuce.core.RedisConnectionException;
+import io.lettuce.core.RedisConnectionStateListener;
+import io.lettuce.core.ScriptOutputType;
+import io.lettuce.core.SetArgs;
 import io.lettuce.core.api.StatefulRedisConnection;
+import io.lettuce.core.api.async.RedisAsyncCommands;
 import io.lettuce.core.api.sync.RedisCommands;
+import io.lettuce.core.codec.ByteArrayCodec;
+import io.lettuce.core.codec.RedisCodec;
+import io.lettuce.core.codec.StringCodec;
+import io.lettuce.core.pubsub.RedisPubSubAdapter;
+import io.lettuce.core.pubsub.StatefulRedisPubSubConnection;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.shared.function.codec.CacheValueCodec;
 
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.time.Duration;
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+import java.util.function.Function;
 
 public class RedisCacheClient {
     private static final long DEFAULT_TTL_SECONDS = 300; // 5 minutes
     private static final int MAX_RETRIES = 3; // Set your desired maximum retry limit
     private static final Duration RETRY_DELAY = Duration.ofMinutes(10); // 10 minute
+    private static final String UNLOCK_SCRIPT =
+            "if redis.call('get', KEYS[1]) == ARGV[1] then return redis.call('del', KEYS[1]) else return 0 end";
+    // a missing counter starts at the server's clock in milliseconds, never at 0
+    private static final String COUNTER_SCRIPT =
+            "if not redis.call('get', KEYS[1]) then "
+            + "local now = redis.call('time') "
+            + "redis.call('set', KEYS[1], now[1] .. string.format('%03d', math.floor(now[2] / 1000))) "
+            + "end "
+            + "return redis.call('incrby', KEYS[1], ARGV[1])";
+    private static final RedisCodec<String, byte[]> VALUE_CODEC = RedisCodec.of(StringCodec.UTF8, ByteArrayCodec.INSTANCE);
 
     private Instant lastConnectionAttempt;
     private int retryCount = 0;
 
-    private RedisClient redisClient;
-    private StatefulRedisConnection<String, String> connection;
-    private RedisCommands<String, String> syncCommands;
-    private final ObjectMapper objectMapper;
+    // Rebuilt under the lock by initializeClient, read without it by the commands
+    private volatile RedisClient redisClient;
+    private volatile StatefulRedisConnection<String, byte[]> connection;
+    private volatile RedisCommands<String, byte[]> syncCommands;
+    private volatile RedisAsyncCommands<String, byte[]> asyncCommands;
+    private volatile StatefulRedisPubSubConnection<String, String> pubSubConnection;
+    // true until a connect succeeds, after a failed one and after shutdown; only then is the client rebuilt
+    private volatile boolean closed = true;
+    // true while the subscriber connection is up and listening on every channel
+    private volatile boolean subscribed;
+    private final Map<String, List<Consumer<String>>> subscriptions = new ConcurrentHashMap<>();
+    private final List<Runnable> subscriptionListeners = new CopyOnWriteArrayList<>();
+    private final CacheValueCodec valueCodec;
     private final String redisUri;
 
     public RedisCacheClient(String redisUri) {
         this.redisUri = redisUri;
-        this.objectMapper = new ObjectMapper();
-        this.objectMapper.registerModule(new JavaTimeModule());
+        ObjectMapper objectMapper = new ObjectMapper();
+        objectMapper.registerModule(new JavaTimeModule());
+        this.valueCodec = CacheValueCodec.fromEnvironment(objectMapper);
         initializeClient();
     }
 
@@ -39,7 +83,7 @@ public class RedisCacheClient {
         this("redis://" + host + ":" + port);
     }
 
-    private void initializeClient() {
+    private synchronized void initializeClient() {
         if (lastConnectionAttempt == null) {
             lastConnectionAttempt = Instant.now();
         }
@@ -62,6 +106,15 @@ public class RedisCacheClient {
             }
         }
         redisClient = RedisClient.create(redisUri);
+        redisClient.addListener(new RedisConnectionStateListener() {
+            @Override
+            public void onRedisDisconnected(RedisChannelHandler<?, ?> disconnected) {
+                // Lettuce reconnects and resubscribes on its own; messages sent meanwhile are lost
+                if (disconnected == pubSubConnection) {
+                    setSubscribed(false);
+                }
+            }
+        });
         connect();
     }
 
@@ -74,11 +127,21 @@ public class RedisCacheClient {
                     // Ignore close errors
                 }
             }
-            connection = redisClient.connect();
+            connection = redisClient.connect(VALUE_CODEC);
             syncCommands = connection.sync();
+            asyncCommands = connection.async();
+            closed = false;
             retryCount = 0; // Reset retry counter on successful connection
+            if (!subscriptions.isEmpty()) {
+                try {
+                    connectPubSub();
+                } catch (Exception e) {
+                    System.err.println("Failed to restore Redis subscriptions: " + e.getMessage());
+                }
+            }
         } catch (Exception e) {
             // If connection fails, try to reinitialize the client
+            closed = true;
             initializeClient();
             if (retryCount > MAX_RETRIES) {
                 System.out.println("Failed to connect to Redis after " + MAX_RETRIES + " attempts");
@@ -87,13 +150,125 @@ public class RedisCacheClient {
         }
     }
 
+    /**
+     * Make sure a connection object exists without talking to Redis.
+     * A dropped connection is not closed: Lettuce reconnects it on its own and
+     * holds commands until then. Only a client that never connected or was shut
+     * down is rebuilt.
+     */
     private void ensureConnection() {
+        if (closed) {
+            reconnectIfClosed();
+        }
+        if (closed) {
+            throw new RedisConnectionException("Redis connection is not available");
+        }
+    }
+
+    private synchronized void reconnectIfClosed() {
+        // another thread may have rebuilt the client while this one waited for the lock
+        if (closed) {
+            initializeClient();
+        }
+    }
+
+    /**
+     * Open the pub/sub connection and (re)subscribe to every registered channel.
+     * Called again after the client is rebuilt, since the old connection dies with it.
+     */
+    private synchronized void connectPubSub() {
+        setSubscribed(false);
+        if (pubSubConnection != null) {
+            try {
+                pubSubConnection.close();
+            } catch (Exception e) {
+                // Ignore close errors
+            }
+        }
+        pubSubConnection = redisClient.connectPubSub();
+        pubSubConnection.addListener(new RedisPubSubAdapter<String, String>() {
+            @Override
+            public void subscribed(String channel, long count) {
+                // also called when Lettuce resubscribes after a reconnect
+                if (count >= subscriptions.size()) {
+                    setSubscribed(true);
+                }
+            }
+
+            @Override
+            public void message(String channel, String message) {
+                List<Consumer<String>> listeners = subscriptions.get(channel);
+                if (listeners == null) {
+                    return;
+                }
+                for (Consumer<String> listener : listeners) {
+                    try {
+                        listener.accept(message);
+                    } catch (Exception e) {
+                        System.err.println("Redis subscriber on " + channel + " failed: " + e.getMessage());
+                    }
+                }
+            }
+        });
+        pubSubConnection.sync().subscribe(subscriptions.keySet().toArray(new String[0]));
+    }
+
+    /**
+     * Run a synchronous command. Connection loss is detected from the failing
+     * command itself; the command is retried once, on a new client only if the
+     * connection was closed rather than being reconnected by Lettuce.
+     */
+    private <T> T execute(Function<RedisCommands<String, byte[]>, T> command) {
+        ensureConnection();
+        try {
+            return command.apply(syncCommands);
+        } catch (RedisConnectionException e) {
+            ensureConnection();
+            return command.apply(syncCommands);
+        }
+    }
+
+    /**
+     * Dispatch an asynchronous command. Commands issued back to back share the
+     * connection and are pipelined by Lettuce without waiting for each reply.
+     * A failed command is not followed by a reconnect: its callbacks run on the
+     * Lettuce I/O thread, which must not block, and Lettuce reconnects the
+     * connection itself.
+     */
+    private <T> CompletableFuture<T> executeAsync(Function<RedisAsyncCommands<String, byte[]>, CompletableFuture<T>> command) {
         try {
-            // Try to ping Redis to check connection
-            syncCommands.ping();
+            ensureConnection();
+            return command.apply(asyncCommands);
         } catch (Exception e) {
-            // If connection is lost or event executor is terminated, reinitialize everything
-            initializeClient();
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    private static SetArgs expiry(long ttlSeconds) {
+        return ttlSeconds > 0 ? SetArgs.Builder.ex(ttlSeconds) : new SetArgs();
+    }
+
+    private byte[] serialize(Object value) {
+        try {
+            return valueCodec.encode(value);
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to serialize object for Redis" + e.getMessage(), e);
+        }
+    }
+
+    private <T> T deserialize(byte[] storedValue, Class<T> clazz) {
+        try {
+            return valueCodec.decode(storedValue, clazz);
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to deserialize object from Redis", e);
+        }
+    }
+
+    private String deserializeJson(byte[] storedValue) {
+        try {
+            return valueCodec.decodeJson(storedValue);
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to deserialize object from Redis", e);
         }
     }
 
@@ -104,22 +279,25 @@ public class RedisCacheClient {
      * @param ttlSeconds
      */
     public void set(String key, Object value, long ttlSeconds) {
-        ensureConnection();
-        try {
-            String jsonValue = objectMapper.writeValueAsString(value);
-            syncCommands.set(key, jsonValue);
-            if (ttlSeconds > 0) {
-                syncCommands.expire(key, Duration.ofSeconds(ttlSeconds));
-            }
-        } catch (IOException e) {
-            throw new RuntimeException("Failed to serialize object for Redis" + e.getMessage(), e);
-        }
+        byte[] storedValue = serialize(value);
+        execute(commands -> commands.set(key, storedValue, expiry(ttlSeconds)));
     }
 
     public void set(String key, Object value) {
         set(key, value, DEFAULT_TTL_SECONDS);
     }
 
+    /**
+     * Store an already serialized value in Redis with TTL (Time-To-Live in seconds)
+     * @param key
+     * @param value
+     * @param ttlSeconds
+     */
+    public void setRaw(String key, String value, long ttlSeconds) {
+        byte[] storedValue = valueCodec.encodeJson(value);
+        execute(commands -> commands.set(key, storedValue, expiry(ttlSeconds)));
+    }
+
     /**
      * Get object from Redis
      * @param key
@@ -127,25 +305,137 @@ public class RedisCacheClient {
      * @return object from Redis or null if key does not exist
      */
     public <T> T get(String key, Class<T> clazz) {
-        ensureConnection();
-        String jsonValue = syncCommands.get(key);
-        if (jsonValue == null) {
-            return null;
+        return deserialize(execute(commands -> commands.get(key)), clazz);
+    }
+
+    /**
+     * Get the stored value from Redis as JSON text, whatever format it was written in
+     * @param key
+     * @return stored JSON or null if key does not exist
+     */
+    public String getRaw(String key) {
+        return deserializeJson(execute(commands -> commands.get(key)));
+    }
+
+    /**
+     * Get several objects from Redis in a single MGET
+     * @param keys
+     * @param clazz
+     * @return found values by key, plus the keys that do not exist
+     */
+    public <T> CacheBatch<T> getAll(Collection<String> keys, Class<T> clazz) {
+        Map<String, T> found = new LinkedHashMap<>();
+        List<String> missing = new ArrayList<>();
+        if (keys.isEmpty()) {
+            return new CacheBatch<>(found, missing);
         }
+        String[] keyArray = keys.toArray(new String[0]);
+        List<KeyValue<String, byte[]>> values = execute(commands -> commands.mget(keyArray));
+        for (KeyValue<String, byte[]> value : values) {
+            if (value.hasValue()) {
+                found.put(value.getKey(), deserialize(value.getValue(), clazz));
+            } else {
+                missing.add(value.getKey());
+            }
+        }
+        return new CacheBatch<>(found, missing);
+    }
+
+    /**
+     * Store several objects with the same TTL. The SET ... EX commands are
+     * pipelined and the call returns once all of them are acknowledged.
+     * @param values objects by key
+     * @param ttlSeconds
+     */
+    public void setAll(Map<String, ?> values, long ttlSeconds) {
+        if (values.isEmpty()) {
+            return;
+        }
+        List<CompletableFuture<Void>> writes = new ArrayList<>(values.size());
+        for (Map.Entry<String, ?> entry : values.entrySet()) {
+            writes.add(setBytesAsync(entry.getKey(), serialize(entry.getValue()), ttlSeconds));
+        }
+        CompletableFuture.allOf(writes.toArray(new CompletableFuture[0])).join();
+    }
+
+    /**
+     * Get a stored JSON value together with its early refresh metadata
+     * @param key
+     * @return entry or null if key does not exist
+     */
+    public CachedValue getEntry(String key) {
+        byte[] storedValue = execute(commands -> commands.get(key));
         try {
-            return objectMapper.readValue(jsonValue, clazz);
+            return valueCodec.decodeEntry(storedValue);
         } catch (IOException e) {
             throw new RuntimeException("Failed to deserialize object from Redis", e);
         }
     }
 
+    /**
+     * Store a JSON value with its early refresh metadata asynchronously
+     * @param key
+     * @param entry
+     * @param ttlSeconds
+     * @return future completed once Redis acknowledged the write
+     */
+    public CompletableFuture<Void> setEntryAsync(String key, CachedValue entry, long ttlSeconds) {
+        return setBytesAsync(key, valueCodec.encodeEntry(entry), ttlSeconds);
+    }
+
+    /**
+     * Read a counter. A missing counter is created from the Redis server clock
+     * in milliseconds, so one lost to eviction comes back above every value it
+     * held before, whichever replica recreates it.
+     * @param key
+     * @return current counter value
+     */
+    public long getCounter(String key) {
+        return addToCounter(key, 0);
+    }
+
+    /**
+     * Atomically increment a counter, creating a missing one as getCounter does
+     * @param key
+     * @return counter value after the increment
+     */
+    public long increment(String key) {
+        return addToCounter(key, 1);
+    }
+
+    private long addToCounter(String key, long delta) {
+        byte[] value = Long.toString(delta).getBytes(StandardCharsets.UTF_8);
+        return execute(commands -> commands.<Long>eval(COUNTER_SCRIPT, ScriptOutputType.INTEGER, new String[] { key }, value));
+    }
+
+    /**
+     * Try to take a short-lived lock (SET NX PX)
+     * @param key
+     * @param token     value identifying the owner, needed to release the lock
+     * @param ttlMillis lock expiry, so a crashed owner cannot hold it forever
+     * @return true if the lock was acquired
+     */
+    public boolean tryLock(String key, String token, long ttlMillis) {
+        byte[] value = token.getBytes(StandardCharsets.UTF_8);
+        return "OK".equals(execute(commands -> commands.set(key, value, SetArgs.Builder.nx().px(ttlMillis))));
+    }
+
+    /**
+     * Release a lock taken with tryLock, only if it is still owned by token
+     * @param key
+     * @param token
+     */
+    public void unlock(String key, String token) {
+        byte[] value = token.getBytes(StandardCharsets.UTF_8);
+        execute(commands -> commands.<Long>eval(UNLOCK_SCRIPT, ScriptOutputType.INTEGER, new String[] { key }, value));
+    }
+
     /**
      * Delete key from Redis
      * @param key
      */
     public void delete(String key) {
-        ensureConnection();
-        syncCommands.del(key);
+        execute(commands -> commands.del(key));
     }
 
     /**
@@ -154,27 +444,173 @@ public class RedisCacheClient {
      * @return true if key exists, false otherwise
      */
     public boolean exists(String key) {
-        ensureConnection();
-        return syncCommands.exists(key) > 0;
+        return execute(commands -> commands.exists(key)) > 0;
     }
 
     /**
-     * Check if Redis connection is alive
-     * @return true if connection is alive, false otherwise
+     * Store object in Redis asynchronously, value and TTL in a single SET ... EX
+     * @param key
+     * @param value
+     * @param ttlSeconds
+     * @return future completed once Redis acknowledged the write
      */
-    public boolean isConnected() {
+    public CompletableFuture<Void> setAsync(String key, Object value, long ttlSeconds) {
+        byte[] storedValue;
         try {
-            syncCommands.ping();
-            return true;
-        } catch (Exception e) {
-            return false;
+            storedValue = serialize(value);
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
         }
+        return setBytesAsync(key, storedValue, ttlSeconds);
+    }
+
+    public CompletableFuture<Void> setAsync(String key, Object value) {
+        return setAsync(key, value, DEFAULT_TTL_SECONDS);
+    }
+
+    /**
+     * Store an already serialized value in Redis asynchronously
+     * @param key
+     * @param value
+     * @param ttlSeconds
+     * @return future completed once Redis acknowledged the write
+     */
+    public CompletableFuture<Void> setRawAsync(String key, String value, long ttlSeconds) {
+        return setBytesAsync(key, valueCodec.encodeJson(value), ttlSeconds);
+    }
+
+    private CompletableFuture<Void> setBytesAsync(String key, byte[] storedValue, long ttlSeconds) {
+        return executeAsync(commands -> commands.set(key, storedValue, expiry(ttlSeconds))
+                .toCompletableFuture()
+                .thenApply(reply -> (Void) null));
+    }
+
+    /**
+     * Get object from Redis asynchronously
+     * @param key
+     * @param clazz
+     * @return future of the object, completed with null if key does not exist
+     */
+    public <T> CompletableFuture<T> getAsync(String key, Class<T> clazz) {
+        return executeAsync(commands -> commands.get(key).toCompletableFuture())
+                .thenApply(storedValue -> deserialize(storedValue, clazz));
+    }
+
+    /**
+     * Get the stored value from Redis as JSON text asynchronously
+     * @param key
+     * @return future of the stored JSON, completed with null if key does not exist
+     */
+    public CompletableFuture<String> getRawAsync(String key) {
+        return executeAsync(commands -> commands.get(key).toCompletableFuture())
+                .thenApply(this::deserializeJson);
+    }
+
+    /**
+     * Delete key from Redis asynchronously
+     * @param key
+     * @return future completed once the key is removed
+     */
+    public CompletableFuture<Void> deleteAsync(String key) {
+        return executeAsync(commands -> commands.del(key)
+                .toCompletableFuture()
+                .thenApply(count -> (Void) null));
+    }
+
+    /**
+     * Check if key exists asynchronously
+     * @param key
+     * @return future of true if key exists, false otherwise
+     */
+    public CompletableFuture<Boolean> existsAsync(String key) {
+        return executeAsync(commands -> commands.exists(key)
+                .toCompletableFuture()
+                .thenApply(count -> count > 0));
+    }
+
+    /**
+     * Publish a message on a channel
+     * @param channel
+     * @param message
+     * @return future of the number of subscribers that received the message
+     */
+    public CompletableFuture<Long> publishAsync(String channel, String message) {
+        byte[] payload = message.getBytes(StandardCharsets.UTF_8);
+        return executeAsync(commands -> commands.publish(channel, payload).toCompletableFuture());
+    }
+
+    /**
+     * Register a listener for messages on a channel. Subscriptions survive
+     * reconnects of the client.
+     * @param channel
+     * @param listener
+     */
+    public void subscribe(String channel, Consumer<String> listener) {
+        boolean newChannel = !subscriptions.containsKey(channel);
+        subscriptions.computeIfAbsent(channel, c -> new CopyOnWriteArrayList<>()).add(listener);
+        ensureConnection();
+        synchronized (this) {
+            if (pubSubConnection == null) {
+                connectPubSub();
+            } else if (newChannel) {
+                pubSubConnection.sync().subscribe(channel);
+            }
+        }
+    }
+
+    /**
+     * Register a callback run whenever the subscriber connection is lost or its
+     * subscriptions are restored. Messages published in between never arrive,
+     * so anything kept in sync by them should be dropped. Callbacks run on the
+     * Lettuce I/O thread and must not block.
+     * @param listener
+     */
+    public void onSubscriptionChange(Runnable listener) {
+        subscriptionListeners.add(listener);
+    }
+
+    /**
+     * Check if every channel is subscribed, without a round trip to the server
+     * @return true if subscribed messages are being received
+     */
+    public boolean isSubscribed() {
+        return subscribed && pubSubConnection != null && pubSubConnection.isOpen();
+    }
+
+    private void setSubscribed(boolean value) {
+        if (subscribed == value) {
+            return;
+        }
+        subscribed = value;
+        for (Runnable listener : subscriptionListeners) {
+            try {
+                listener.run();
+            } catch (Exception e) {
+                System.err.println("Redis subscription listener failed: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Check if Redis connection is open, without a round trip to the server
+     * @return true if connection is open, false otherwise
+     */
+    public boolean isConnected() {
+        return connection != null && connection.isOpen();
     }
 
     /**
      * Close connection (call this when your function shuts down)
      */
-    public void shutdown() {
+    public synchronized void shutdown() {
+        closed = true;
+        try {
+            if (pubSubConnection != null) {
+                pubSubConnection.close();
+            }
+        } catch (Exception e) {
+            // Ignore close errors
+        }
         try {
             if (connection != null) {
                 connection.close();
@@ -0,0 +1,72 @@
+package com.shared.function;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+
+import org.ehcache.config.CacheConfiguration;
+import org.ehcache.config.builders.CacheConfigurationBuilder;
+import org.ehcache.config.builders.ExpiryPolicyBuilder;
+import org.ehcache.config.builders.ResourcePoolsBuilder;
+import org.ehcache.core.config.DefaultConfiguration;
+import org.ehcache.jsr107.EhcacheCachingProvider;
+
+/**
+ * Hibernate second-level cache for reference data that is read on nearly every
+ * request but rarely changes: task statuses, project tags and users, and the
+ * project collections that hold them.
+ *
+ * Every region is an in-process Ehcache cache bounded by entry count and a
+ * time-to-live. Writes through Hibernate keep the regions up to date; native
+ * writes evict what they touch after commit (see JpaUtil.evict). Evictions are
+ * broadcast to the other replicas (see SecondLevelCacheSync); the TTL bounds how
+ * long a replica that missed one may serve the old row. Limits come from the
+ * environment, per region:
+ * l2-cache-(region)-max-entries and l2-cache-(region)-ttl-seconds.
+ */
+public final class SecondLevelCache {
+    public static final String USER_REGION = "user";
+    public static final String TASK_STATUS_REGION = "task-status";
+    public static final String PROJECT_TAG_REGION = "project-tag";
+    public static final String PROJECT_MEMBERS_REGION = "project-members";
+    public static final String PROJECT_STATUSES_REGION = "project-statuses";
+    public static final String PROJECT_TAGS_REGION = "project-tags";
+
+    private static final long DEFAULT_MAX_ENTRIES = 1000;
+    private static final long DEFAULT_TTL_SECONDS = 60;
+    private static final long USER_MAX_ENTRIES = 5000;
+
+    private SecondLevelCache() {
+    }
+
+    /**
+     * Build the cache manager behind Hibernate's JCache region factory, with one
+     * cache per region.
+     */
+    static CacheManager createCacheManager() {
+        Map<String, CacheConfiguration<?, ?>> caches = new LinkedHashMap<>();
+        caches.put(USER_REGION, region(USER_REGION, USER_MAX_ENTRIES));
+        caches.put(TASK_STATUS_REGION, region(TASK_STATUS_REGION, DEFAULT_MAX_ENTRIES));
+        caches.put(PROJECT_TAG_REGION, region(PROJECT_TAG_REGION, DEFAULT_MAX_ENTRIES));
+        caches.put(PROJECT_MEMBERS_REGION, region(PROJECT_MEMBERS_REGION, DEFAULT_MAX_ENTRIES));
+        caches.put(PROJECT_STATUSES_REGION, region(PROJECT_STATUSES_REGION, DEFAULT_MAX_ENTRIES));
+        caches.put(PROJECT_TAGS_REGION, region(PROJECT_TAGS_REGION, DEFAULT_MAX_ENTRIES));
+
+        EhcacheCachingProvider provider = (EhcacheCachingProvider) Caching
+                .getCachingProvider(EhcacheCachingProvider.class.getName());
+        return provider.getCacheManager(provider.getDefaultURI(), new DefaultConfiguration(caches,
+                provider.getDefaultClassLoader()));
+    }
+
+    private static CacheConfiguration<Object, Object> region(String name, long defaultMaxEntries) {
+        long maxEntries = Env.readLong("l2-cache-" + name + "-max-entries", defaultMaxEntries);
+        long ttlSeconds = Env.readLong("l2-cache-" + name + "-ttl-seconds", DEFAULT_TTL_SECONDS);
+        return CacheConfigurationBuilder
+                .newCacheConfigurationBuilder(Object.class, Object.class, ResourcePoolsBuilder.heap(maxEntries))
+                .withExpiry(ExpiryPolicyBuilder.timeToLiveExpiration(Duration.ofSeconds(ttlSeconds)))
+                .build();
+    }
+}
@@ -0,0 +1,234 @@
+package com.shared.function;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.engine.spi.CollectionEntry;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.AbstractCollectionEvent;
+import org.hibernate.event.spi.EventType;
+import org.hibernate.event.spi.PostCollectionRecreateEvent;
+import org.hibernate.event.spi.PostCollectionRecreateEventListener;
+import org.hibernate.event.spi.PostCollectionRemoveEvent;
+import org.hibernate.event.spi.PostCollectionRemoveEventListener;
+import org.hibernate.event.spi.PostCollectionUpdateEvent;
+import org.hibernate.event.spi.PostCollectionUpdateEventListener;
+import org.hibernate.event.spi.PostCommitDeleteEventListener;
+import org.hibernate.event.spi.PostCommitInsertEventListener;
+import org.hibernate.event.spi.PostCommitUpdateEventListener;
+import org.hibernate.event.spi.PostDeleteEvent;
+import org.hibernate.event.spi.PostInsertEvent;
+import org.hibernate.event.spi.PostUpdateEvent;
+import org.hibernate.metamodel.mapping.internal.EntityCollectionPart;
+import org.hibernate.persister.collection.CollectionPersister;
+import org.hibernate.persister.entity.EntityPersister;
+
+/**
+ * Keeps the second-level cache of every replica in step with the writes of
+ * all of them. The cache is in-process, so a write only evicts the copy of the
+ * replica that made it; the evictions are broadcast on the invalidation channel
+ * of the two-tier cache (TwoTierCache.INVALIDATION_CHANNEL) as
+ * l2:entity:(entity name)[#id] and l2:collection:(role)[#owner id], without
+ * the id to drop every entry.
+ *
+ * Writes through Hibernate are picked up by commit listeners; native writes
+ * report what they touch through JpaUtil.evict and friends. An insert or delete
+ * drops the cached collections that may hold the entity, on every owner. Ids of
+ * cached entities are Integers.
+ */
+public final class SecondLevelCacheSync {
+    private static final String ENTITY = "l2:entity:";
+    private static final String COLLECTION = "l2:collection:";
+
+    private static volatile SessionFactoryImplementor sessionFactory;
+    private static volatile RedisCacheClient redis;
+    // cached collection roles, by the entity name of their elements
+    private static final Map<String, List<String>> rolesByElement = new ConcurrentHashMap<>();
+
+    private SecondLevelCacheSync() {
+    }
+
+    /**
+     * Listen to the commits of a factory that writes, and evict through its cache.
+     */
+    static void register(EntityManagerFactory emf) {
+        SessionFactoryImplementor factory = emf.unwrap(SessionFactoryImplementor.class);
+        factory.getMappingMetamodel().forEachCollectionDescriptor(collection -> {
+            if (collection.hasCache()
+                    && collection.getAttributeMapping().getElementDescriptor() instanceof EntityCollectionPart) {
+                String element = ((EntityCollectionPart) collection.getAttributeMapping().getElementDescriptor())
+                        .getAssociatedEntityMappingType().getEntityName();
+                rolesByElement.computeIfAbsent(element, e -> new ArrayList<>()).add(collection.getRole());
+            }
+        });
+
+        Listener listener = new Listener();
+        EventListenerRegistry listeners = factory.getServiceRegistry().requireService(EventListenerRegistry.class);
+        listeners.appendListeners(EventType.POST_COMMIT_INSERT, listener);
+        listeners.appendListeners(EventType.POST_COMMIT_UPDATE, listener);
+        listeners.appendListeners(EventType.POST_COMMIT_DELETE, listener);
+        listeners.appendListeners(EventType.POST_COLLECTION_RECREATE, listener);
+        listeners.appendListeners(EventType.POST_COLLECTION_UPDATE, listener);
+        listeners.appendListeners(EventType.POST_COLLECTION_REMOVE, listener);
+        sessionFactory = factory;
+    }
+
+    /**
+     * Broadcast evictions through Redis and apply the ones of the other replicas.
+     * Without it evictions stay local and the region TTLs bound how long other
+     * replicas serve old rows.
+     * @param redisClient
+     */
+    public static synchronized void connect(RedisCacheClient redisClient) {
+        if (redis != null) {
+            return;
+        }
+        redisClient.subscribe(TwoTierCache.INVALIDATION_CHANNEL, SecondLevelCacheSync::apply);
+        redis = redisClient;
+    }
+
+    static void evictEntity(Class<?> type, Object id) {
+        broadcast(ENTITY + type.getName() + "#" + id);
+    }
+
+    static void evictEntities(Class<?> type) {
+        broadcast(ENTITY + type.getName());
+    }
+
+    static void evictCollection(String role, Object ownerId) {
+        broadcast(COLLECTION + role + "#" + ownerId);
+    }
+
+    private static void broadcast(String message) {
+        apply(message);
+        publish(message);
+    }
+
+    private static void publish(String message) {
+        RedisCacheClient client = redis;
+        if (client == null) {
+            return;
+        }
+        client.publishAsync(TwoTierCache.INVALIDATION_CHANNEL, message).exceptionally(e -> {
+            System.err.println("WARN: Cache invalidation broadcast failed for " + message + ": " + e.getMessage());
+            return null;
+        });
+    }
+
+    /**
+     * Evict what a message names from this replica; other messages on the channel are ignored.
+     */
+    private static void apply(String message) {
+        SessionFactoryImplementor factory = sessionFactory;
+        if (factory == null) {
+            return;
+        }
+        boolean entity = message.startsWith(ENTITY);
+        if (!entity && !message.startsWith(COLLECTION)) {
+            return;
+        }
+        String target = message.substring(entity ? ENTITY.length() : COLLECTION.length());
+        int separator = target.indexOf('#');
+        String name = separator < 0 ? target : target.substring(0, separator);
+        Integer id = separator < 0 ? null : Integer.valueOf(target.substring(separator + 1));
+        if (entity && id == null) {
+            factory.getCache().evictEntityData(name);
+        } else if (entity) {
+            factory.getCache().evictEntityData(name, id);
+        } else if (id == null) {
+            factory.getCache().evictCollectionData(name);
+        } else {
+            factory.getCache().evictCollectionData(name, id);
+        }
+    }
+
+    private static void publishElementRoles(String entityName) {
+        for (String role : rolesByElement.getOrDefault(entityName, List.of())) {
+            publish(COLLECTION + role);
+        }
+    }
+
+    /**
+     * Publishes the evictions of committed Hibernate writes. Hibernate has already
+     * updated this replica's cache, so nothing is evicted here.
+     */
+    private static final class Listener implements PostCommitInsertEventListener, PostCommitUpdateEventListener,
+            PostCommitDeleteEventListener, PostCollectionRecreateEventListener, PostCollectionUpdateEventListener,
+            PostCollectionRemoveEventListener {
+
+        @Override
+        public boolean requiresPostCommitHandling(EntityPersister persister) {
+            return persister.canWriteToCache() || rolesByElement.containsKey(persister.getEntityName());
+        }
+
+        @Override
+        public void onPostInsert(PostInsertEvent event) {
+            publishElementRoles(event.getPersister().getEntityName());
+        }
+
+        @Override
+        public void onPostInsertCommitFailed(PostInsertEvent event) {
+        }
+
+        @Override
+        public void onPostUpdate(PostUpdateEvent event) {
+            if (event.getPersister().canWriteToCache()) {
+                publish(ENTITY + event.getPersister().getEntityName() + "#" + event.getId());
+            }
+        }
+
+        @Override
+        public void onPostUpdateCommitFailed(PostUpdateEvent event) {
+        }
+
+        @Override
+        public void onPostDelete(PostDeleteEvent event) {
+            if (event.getPersister().canWriteToCache()) {
+                publish(ENTITY + event.getPersister().getEntityName() + "#" + event.getId());
+            }
+            publishElementRoles(event.getPersister().getEntityName());
+        }
+
+        @Override
+        public void onPostDeleteCommitFailed(PostDeleteEvent event) {
+        }
+
+        @Override
+        public void onPostRecreateCollection(PostCollectionRecreateEvent event) {
+            publishAfterCommit(event);
+        }
+
+        @Override
+        public void onPostUpdateCollection(PostCollectionUpdateEvent event) {
+            publishAfterCommit(event);
+        }
+
+        @Override
+        public void onPostRemoveCollection(PostCollectionRemoveEvent event) {
+            publishAfterCommit(event);
+        }
+
+        // collection events fire at flush, so the message waits for the commit
+        private void publishAfterCommit(AbstractCollectionEvent event) {
+            // a new owner's collection gets its role only after the action, so take the persister from its entry
+            CollectionEntry entry = event.getSession().getPersistenceContextInternal()
+                    .getCollectionEntry(event.getCollection());
+            CollectionPersister persister = entry == null ? null
+                    : entry.getCurrentPersister() != null ? entry.getCurrentPersister() : entry.getLoadedPersister();
+            Object ownerId = event.getAffectedOwnerIdOrNull();
+            if (persister == null || !persister.hasCache() || ownerId == null) {
+                return;
+            }
+            String role = persister.getRole();
+            event.getSession().getActionQueue().registerProcess((success, session) -> {
+                if (success) {
+                    publish(COLLECTION + role + "#" + ownerId);
+                }
+            });
+        }
+    }
+}
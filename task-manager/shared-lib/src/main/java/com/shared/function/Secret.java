@@ -5,9 +5,12 @@ import java.nio.file.Files;
 import java.nio.file.Paths;
 
 public class Secret {
+    // Where OpenFaaS mounts the function's secrets; the secrets.dir system property overrides it, e.g. in tests
+    private static final String DEFAULT_SECRETS_DIR = "/var/openfaas/secrets";
+
     public String getSecret(String secretName) {
         try {
-            return new String(Files.readAllBytes(Paths.get("/var/openfaas/secrets/" + secretName)));
+            return new String(Files.readAllBytes(Paths.get(System.getProperty("secrets.dir", DEFAULT_SECRETS_DIR), secretName)));
         } catch (IOException e) {
             System.err.println("Error reading secret: " + e.getMessage());
             return null;
@@ -0,0 +1,336 @@
+package com.shared.function;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import java.time.Duration;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Two level cache for serialized values.
+ * L1 is an in-process Caffeine cache bounded by the size of its strings
+ * (W-TinyLFU eviction, so frequently read keys survive bursts of one-off reads),
+ * L2 is Redis. Evictions are broadcast over Redis pub/sub so every replica of a
+ * function drops its L1 copy. L1 is skipped while that subscription is down,
+ * and emptied when it drops and again once it is restored.
+ *
+ * getOrLoad protects the database from stampedes on hot keys: one loader per
+ * key per JVM, a short Redis lock per key across replicas, and probabilistic
+ * early refresh (XFetch) so popular keys are rebuilt before they expire.
+ *
+ * Generation counters group many derived keys under one version number: keys
+ * embed the current generation, so bumping it invalidates all of them at once
+ * and the orphaned entries simply age out.
+ */
+public class TwoTierCache {
+    public static final String INVALIDATION_CHANNEL = "cache:invalidate";
+
+    private static final long DEFAULT_L1_MAX_BYTES = 16 * 1024 * 1024;
+    private static final long DEFAULT_L1_TTL_SECONDS = 30;
+    private static final double EARLY_REFRESH_BETA = 1.0;
+    private static final long LOCK_TTL_MILLIS = 5000;
+    // how long a request waits for another replica's load before loading itself
+    private static final long LOCK_WAIT_MILLIS = 500;
+    private static final long LOCK_POLL_MILLIS = 50;
+
+    private final Cache<String, CachedValue> local;
+    private final Cache<String, Long> generations;
+    private final RedisCacheClient redis;
+    private final ConcurrentHashMap<String, CompletableFuture<String>> inFlight = new ConcurrentHashMap<>();
+
+    /**
+     * @param redis
+     * @param maxBytes approximate L1 size, counting two bytes per character of keys and values
+     * @param localTtlSeconds
+     */
+    public TwoTierCache(RedisCacheClient redis, long maxBytes, long localTtlSeconds) {
+        this.redis = redis;
+        this.local = Caffeine.newBuilder()
+                .maximumWeight(maxBytes)
+                .weigher((String key, CachedValue entry) -> 2 * (key.length() + entry.getValue().length()))
+                .expireAfterWrite(Duration.ofSeconds(localTtlSeconds))
+                .build();
+        this.generations = Caffeine.newBuilder()
+                .maximumWeight(maxBytes)
+                .weigher((String key, Long generation) -> 2 * key.length() + Long.BYTES)
+                .expireAfterWrite(Duration.ofSeconds(localTtlSeconds))
+                .build();
+
+        // Without Redis there is no way to hear about writes on other replicas,
+        // so the L1 tier stays empty rather than serving stale entries.
+        if (redis != null) {
+            redis.onSubscriptionChange(() -> {
+                local.invalidateAll();
+                generations.invalidateAll();
+            });
+            try {
+                redis.subscribe(INVALIDATION_CHANNEL, key -> {
+                    local.invalidate(key);
+                    generations.invalidate(key);
+                });
+            } catch (Exception e) {
+                System.err.println("Failed to subscribe to cache invalidations: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Build the cache with limits from the environment
+     * (l1-cache-max-bytes, l1-cache-ttl-seconds), falling back to defaults.
+     * @param redis
+     */
+    public TwoTierCache(RedisCacheClient redis) {
+        this(redis,
+                Env.readLong("l1-cache-max-bytes", DEFAULT_L1_MAX_BYTES),
+                Env.readLong("l1-cache-ttl-seconds", DEFAULT_L1_TTL_SECONDS));
+    }
+
+    private boolean isLocalEnabled() {
+        return redis != null && redis.isConnected();
+    }
+
+    // L1 entries are only safe while invalidations from other replicas can reach them
+    private boolean isL1Live() {
+        return redis.isSubscribed();
+    }
+
+    private void putLocal(String key, CachedValue entry) {
+        if (isL1Live()) {
+            local.put(key, entry);
+        }
+    }
+
+    /**
+     * Look up a value in L1, then Redis. Redis hits are promoted into L1.
+     * @param key
+     * @return cached value or null on miss
+     */
+    public String get(String key) {
+        if (!isLocalEnabled()) {
+            return null;
+        }
+        CachedValue entry = lookup(key);
+        return entry == null ? null : entry.getValue();
+    }
+
+    private CachedValue lookup(String key) {
+        CachedValue entry = isL1Live() ? local.getIfPresent(key) : null;
+        if (entry != null) {
+            return entry;
+        }
+        entry = redis.getEntry(key);
+        if (entry != null) {
+            putLocal(key, entry);
+        }
+        return entry;
+    }
+
+    /**
+     * Read-through lookup. On a miss, or when XFetch decides this request should
+     * refresh early, the loader runs at most once per key in this JVM and, while
+     * the Redis lock is held, on no other replica either. A null result is
+     * returned as-is and not cached.
+     * @param key
+     * @param ttlSeconds
+     * @param loader builds the value from the database
+     * @return cached or freshly loaded value
+     */
+    public String getOrLoad(String key, long ttlSeconds, Supplier<String> loader) {
+        if (!isLocalEnabled()) {
+            return loader.get();
+        }
+        CachedValue cached;
+        try {
+            cached = lookup(key);
+        } catch (Exception e) {
+            System.err.println("WARN: Cache read failed for " + key + ": " + e.getMessage());
+            return loader.get();
+        }
+        if (cached != null && !cached.shouldRefreshEarly(EARLY_REFRESH_BETA)) {
+            return cached.getValue();
+        }
+        return loadOnce(key, ttlSeconds, loader, cached);
+    }
+
+    private String loadOnce(String key, long ttlSeconds, Supplier<String> loader, CachedValue stale) {
+        CompletableFuture<String> own = new CompletableFuture<>();
+        CompletableFuture<String> running = inFlight.putIfAbsent(key, own);
+        if (running != null) {
+            // Another thread of this JVM is already loading; serve stale data if we have it
+            if (stale != null) {
+                return stale.getValue();
+            }
+            try {
+                return running.join();
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof RuntimeException) {
+                    throw (RuntimeException) e.getCause();
+                }
+                throw e;
+            }
+        }
+        try {
+            String value = loadAcrossReplicas(key, ttlSeconds, loader, stale);
+            own.complete(value);
+            return value;
+        } catch (RuntimeException e) {
+            own.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, own);
+        }
+    }
+
+    private String loadAcrossReplicas(String key, long ttlSeconds, Supplier<String> loader, CachedValue stale) {
+        String lockKey = key + ":lock";
+        String token = UUID.randomUUID().toString();
+        boolean locked;
+        try {
+            locked = redis.tryLock(lockKey, token, LOCK_TTL_MILLIS);
+        } catch (Exception e) {
+            // Without a working lock fall back to loading; single-flight still holds per JVM
+            System.err.println("WARN: Cache lock failed for " + key + ": " + e.getMessage());
+            return loadAndStore(key, ttlSeconds, loader);
+        }
+
+        if (!locked) {
+            if (stale != null) {
+                return stale.getValue();
+            }
+            CachedValue loaded = awaitOtherReplica(key);
+            if (loaded != null) {
+                return loaded.getValue();
+            }
+            return loadAndStore(key, ttlSeconds, loader);
+        }
+
+        try {
+            // the previous holder may have stored a newer value just before the lock was free
+            CachedValue stored;
+            try {
+                stored = redis.getEntry(key);
+            } catch (Exception e) {
+                stored = null;
+            }
+            if (stored != null && (stale == null || stored.getExpiresAtMillis() > stale.getExpiresAtMillis())) {
+                putLocal(key, stored);
+                return stored.getValue();
+            }
+            return loadAndStore(key, ttlSeconds, loader);
+        } finally {
+            try {
+                redis.unlock(lockKey, token);
+            } catch (Exception e) {
+                // The lock expires on its own
+            }
+        }
+    }
+
+    private CachedValue awaitOtherReplica(String key) {
+        long deadline = System.currentTimeMillis() + LOCK_WAIT_MILLIS;
+        while (System.currentTimeMillis() < deadline) {
+            try {
+                Thread.sleep(LOCK_POLL_MILLIS);
+                CachedValue entry = redis.getEntry(key);
+                if (entry != null) {
+                    putLocal(key, entry);
+                    return entry;
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return null;
+            } catch (Exception e) {
+                return null;
+            }
+        }
+        return null;
+    }
+
+    private String loadAndStore(String key, long ttlSeconds, Supplier<String> loader) {
+        long start = System.currentTimeMillis();
+        String value = loader.get();
+        if (value == null) {
+            return null;
+        }
+        long now = System.currentTimeMillis();
+        CachedValue entry = new CachedValue(value, now - start, now + ttlSeconds * 1000);
+        putLocal(key, entry);
+        redis.setEntryAsync(key, entry, ttlSeconds).exceptionally(e -> {
+            System.err.println("WARN: Cache write failed for " + key + ": " + e.getMessage());
+            return null;
+        });
+        return value;
+    }
+
+    /**
+     * Store a value in both tiers. The Redis write is asynchronous.
+     * @param key
+     * @param value
+     * @param ttlSeconds
+     */
+    public void put(String key, String value, long ttlSeconds) {
+        if (!isLocalEnabled()) {
+            return;
+        }
+        putLocal(key, new CachedValue(value, 0, 0));
+        redis.setRawAsync(key, value, ttlSeconds).exceptionally(e -> {
+            System.err.println("WARN: Cache write failed for " + key + ": " + e.getMessage());
+            return null;
+        });
+    }
+
+    /**
+     * Current value of a generation counter, served from L1 when possible.
+     * A missing counter is created from the Redis server clock rather than 0,
+     * also when it is bumped, so a counter lost to Redis eviction never reuses
+     * a generation that keys or ETags were built from.
+     * @param generationKey
+     * @return generation
+     */
+    public long generation(String generationKey) {
+        if (!isLocalEnabled()) {
+            return 0;
+        }
+        if (!isL1Live()) {
+            return redis.getCounter(generationKey);
+        }
+        return generations.get(generationKey, redis::getCounter);
+    }
+
+    /**
+     * Move a generation counter forward, invalidating every key built from it
+     * on all replicas.
+     * @param generationKey
+     */
+    public void bumpGeneration(String generationKey) {
+        generations.invalidate(generationKey);
+        if (redis == null) {
+            return;
+        }
+        redis.increment(generationKey);
+        redis.publishAsync(INVALIDATION_CHANNEL, generationKey).exceptionally(e -> {
+            System.err.println("WARN: Cache invalidation broadcast failed for " + generationKey + ": " + e.getMessage());
+            return null;
+        });
+    }
+
+    /**
+     * Remove a value from Redis and from the L1 tier of every replica.
+     * @param key
+     */
+    public void evict(String key) {
+        local.invalidate(key);
+        if (redis == null) {
+            return;
+        }
+        redis.delete(key);
+        redis.publishAsync(INVALIDATION_CHANNEL, key).exceptionally(e -> {
+            System.err.println("WARN: Cache invalidation broadcast failed for " + key + ": " + e.getMessage());
+            return null;
+        });
+    }
+}
@@ -0,0 +1,161 @@
+package com.shared.function;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityTransaction;
+
+/**
+ * Request-scoped unit of work: one EntityManager, one connection and one
+ * transaction shared by every repository call made on the current thread.
+ *
+ * While a unit of work is open, JpaUtil.getEntityManager() returns the shared
+ * EntityManager wrapped so that the repositories' own transaction handling joins
+ * the outer one: close() and begin() do nothing, commit() only flushes, and
+ * rollback() marks the outer transaction rollback-only. Outside a unit of work
+ * each repository call keeps its own EntityManager and transaction.
+ */
+public final class UnitOfWork implements AutoCloseable {
+    private static final ThreadLocal<UnitOfWork> CURRENT = new ThreadLocal<>();
+
+    private final EntityManager entityManager;
+    private final EntityManager joined;
+    private final List<Runnable> afterCommit = new ArrayList<>();
+
+    private UnitOfWork(EntityManager entityManager) {
+        this.entityManager = entityManager;
+        this.joined = joinedEntityManager(entityManager);
+    }
+
+    /**
+     * Open a unit of work on the current thread and begin its transaction.
+     * @return the unit of work, to be closed by the caller
+     * @throws IllegalStateException if one is already open on this thread
+     */
+    public static UnitOfWork begin() {
+        if (CURRENT.get() != null) {
+            throw new IllegalStateException("A unit of work is already active on this thread");
+        }
+        UnitOfWork unitOfWork = new UnitOfWork(JpaUtil.createEntityManager());
+        unitOfWork.entityManager.getTransaction().begin();
+        CURRENT.set(unitOfWork);
+        return unitOfWork;
+    }
+
+    public static boolean isActive() {
+        return CURRENT.get() != null;
+    }
+
+    /**
+     * The shared EntityManager of the current unit of work, or null if none is open.
+     */
+    static EntityManager currentEntityManager() {
+        UnitOfWork unitOfWork = CURRENT.get();
+        return unitOfWork == null ? null : unitOfWork.joined;
+    }
+
+    /**
+     * Run an action once the current unit of work has committed, e.g. a cache
+     * invalidation that must not be seen before the data changes. Without an open
+     * unit of work the action runs immediately.
+     * @param action
+     */
+    public static void afterCommit(Runnable action) {
+        UnitOfWork unitOfWork = CURRENT.get();
+        if (unitOfWork == null) {
+            action.run();
+        } else {
+            unitOfWork.afterCommit.add(action);
+        }
+    }
+
+    /**
+     * Commit the transaction, or roll it back if a repository call failed in it,
+     * then run the after-commit actions.
+     * @return whether the transaction was committed
+     */
+    public boolean commit() {
+        EntityTransaction tx = entityManager.getTransaction();
+        if (!tx.isActive()) {
+            return false;
+        }
+        if (tx.getRollbackOnly()) {
+            tx.rollback();
+            return false;
+        }
+        tx.commit();
+        for (Runnable action : afterCommit) {
+            try {
+                action.run();
+            } catch (Exception e) {
+                System.err.println("WARN: After-commit action failed: " + e.getMessage());
+            }
+        }
+        return true;
+    }
+
+    public void rollback() {
+        EntityTransaction tx = entityManager.getTransaction();
+        if (tx.isActive()) {
+            tx.rollback();
+        }
+    }
+
+    /**
+     * Roll back anything not committed and release the EntityManager and its connection.
+     */
+    @Override
+    public void close() {
+        try {
+            rollback();
+        } finally {
+            CURRENT.remove();
+            entityManager.close();
+        }
+    }
+
+    private static EntityManager joinedEntityManager(EntityManager target) {
+        EntityTransaction joinedTransaction = (EntityTransaction) Proxy.newProxyInstance(
+                EntityTransaction.class.getClassLoader(), new Class<?>[] { EntityTransaction.class },
+                (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "begin":
+                            return null;
+                        case "commit":
+                            // surface constraint errors at the repository call that caused them
+                            target.flush();
+                            return null;
+                        case "rollback":
+                            target.getTransaction().setRollbackOnly();
+                            return null;
+                        default:
+                            return invoke(target.getTransaction(), method, args);
+                    }
+                });
+        InvocationHandler handler = (proxy, method, args) -> {
+            switch (method.getName()) {
+                case "close":
+                    return null;
+                case "getTransaction":
+                    return joinedTransaction;
+                default:
+                    return invoke(target, method, args);
+            }
+        };
+        return (EntityManager) Proxy.newProxyInstance(
+                EntityManager.class.getClassLoader(), new Class<?>[] { EntityManager.class }, handler);
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package com.shared.function.codec;
+
+import java.io.IOException;
+
+/**
+ * Serializes cache values to bytes and back.
+ * Each codec has a format id that is written into the entry header, so a
+ * reader can decode entries written by any registered codec.
+ */
+public interface CacheCodec {
+    /**
+     * @return id stored in the entry header, unique per codec
+     */
+    byte formatId();
+
+    byte[] encode(Object value) throws IOException;
+
+    <T> T decode(byte[] payload, Class<T> clazz) throws IOException;
+
+    /**
+     * Convert a payload of this format into JSON text.
+     * @param payload
+     * @return JSON text
+     */
+    String toJson(byte[] payload) throws IOException;
+}
@@ -0,0 +1,199 @@
+package com.shared.function.codec;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.shared.function.CachedValue;
+
+import net.jpountz.lz4.LZ4Compressor;
+import net.jpountz.lz4.LZ4Factory;
+import net.jpountz.lz4.LZ4FastDecompressor;
+
+/**
+ * Frames cache values with a small header so several formats can live in
+ * Redis at the same time (e.g. while replicas are being rolled out).
+ *
+ * Layout: [0xCA magic][format id][flags][compute ms + expiry, only if flagged]
+ * [original length, only if compressed][payload]
+ *
+ * Entries without the magic byte were written before the header existed and
+ * are read as plain JSON text. JSON text never starts with 0xCA, so the two
+ * cannot be confused.
+ */
+public class CacheValueCodec {
+    private static final byte MAGIC = (byte) 0xCA;
+    private static final byte FLAG_LZ4 = 1;
+    private static final byte FLAG_REFRESH_META = 2;
+    private static final int REFRESH_META_SIZE = Integer.BYTES + Long.BYTES;
+    private static final int HEADER_SIZE = 3;
+    private static final int DEFAULT_COMPRESSION_THRESHOLD = 1024; // bytes
+
+    private final Map<Byte, CacheCodec> codecs = new HashMap<>();
+    private final JsonCacheCodec jsonCodec;
+    private final CacheCodec writeCodec;
+    private final int compressionThreshold;
+    private final LZ4Compressor compressor = LZ4Factory.fastestInstance().fastCompressor();
+    private final LZ4FastDecompressor decompressor = LZ4Factory.fastestInstance().fastDecompressor();
+
+    /**
+     * @param objectMapper         mapper used for JSON and as template for Smile
+     * @param writeFormat          "json" or "smile", the format of new typed entries
+     * @param compressionThreshold payloads of at least this many bytes are LZ4
+     *                             compressed, a negative value disables compression
+     */
+    public CacheValueCodec(ObjectMapper objectMapper, String writeFormat, int compressionThreshold) {
+        this.jsonCodec = new JsonCacheCodec(objectMapper);
+        SmileCacheCodec smileCodec = new SmileCacheCodec(objectMapper);
+        codecs.put(jsonCodec.formatId(), jsonCodec);
+        codecs.put(smileCodec.formatId(), smileCodec);
+        this.writeCodec = "json".equalsIgnoreCase(writeFormat) ? jsonCodec : smileCodec;
+        this.compressionThreshold = compressionThreshold;
+    }
+
+    /**
+     * Build the codec from the cache-codec and cache-compression-threshold
+     * environment variables, defaulting to Smile and 1 KiB.
+     * @param objectMapper
+     * @return codec
+     */
+    public static CacheValueCodec fromEnvironment(ObjectMapper objectMapper) {
+        String format = System.getenv("cache-codec");
+        int threshold = DEFAULT_COMPRESSION_THRESHOLD;
+        String thresholdValue = System.getenv("cache-compression-threshold");
+        if (thresholdValue != null && !thresholdValue.isBlank()) {
+            try {
+                threshold = Integer.parseInt(thresholdValue.trim());
+            } catch (NumberFormatException e) {
+                System.err.println("Invalid value for cache-compression-threshold: " + thresholdValue);
+            }
+        }
+        return new CacheValueCodec(objectMapper, format == null ? "smile" : format, threshold);
+    }
+
+    /**
+     * Encode an object with the configured write format.
+     * @param value
+     * @return framed bytes
+     */
+    public byte[] encode(Object value) throws IOException {
+        return frame(writeCodec.formatId(), writeCodec.encode(value), null);
+    }
+
+    /**
+     * Encode text that is already JSON (e.g. a response body) without re-parsing it.
+     * @param json
+     * @return framed bytes
+     */
+    public byte[] encodeJson(String json) {
+        return frame(jsonCodec.formatId(), json.getBytes(StandardCharsets.UTF_8), null);
+    }
+
+    /**
+     * Encode JSON text together with its early refresh metadata.
+     * @param entry
+     * @return framed bytes
+     */
+    public byte[] encodeEntry(CachedValue entry) {
+        return frame(jsonCodec.formatId(), entry.getValue().getBytes(StandardCharsets.UTF_8), entry);
+    }
+
+    /**
+     * Decode a stored entry to JSON text plus the early refresh metadata, if any was written.
+     * @param stored
+     * @return entry, or null if stored is null
+     */
+    public CachedValue decodeEntry(byte[] stored) throws IOException {
+        if (stored == null) {
+            return null;
+        }
+        if (!isFramed(stored) || (stored[2] & FLAG_REFRESH_META) == 0) {
+            return new CachedValue(decodeJson(stored), 0, 0);
+        }
+        ByteBuffer meta = ByteBuffer.wrap(stored, HEADER_SIZE, REFRESH_META_SIZE);
+        int computeMillis = meta.getInt();
+        long expiresAtMillis = meta.getLong();
+        return new CachedValue(decodeJson(stored), computeMillis, expiresAtMillis);
+    }
+
+    public <T> T decode(byte[] stored, Class<T> clazz) throws IOException {
+        if (stored == null) {
+            return null;
+        }
+        if (!isFramed(stored)) {
+            return jsonCodec.decode(stored, clazz);
+        }
+        return codecFor(stored[1]).decode(payload(stored), clazz);
+    }
+
+    /**
+     * Decode a stored entry of any format to JSON text.
+     * @param stored
+     * @return JSON text, or null if stored is null
+     */
+    public String decodeJson(byte[] stored) throws IOException {
+        if (stored == null) {
+            return null;
+        }
+        if (!isFramed(stored)) {
+            return jsonCodec.toJson(stored);
+        }
+        return codecFor(stored[1]).toJson(payload(stored));
+    }
+
+    private static boolean isFramed(byte[] stored) {
+        return stored.length >= HEADER_SIZE && stored[0] == MAGIC;
+    }
+
+    private CacheCodec codecFor(byte formatId) throws IOException {
+        CacheCodec codec = codecs.get(formatId);
+        if (codec == null) {
+            throw new IOException("Unknown cache value format " + formatId);
+        }
+        return codec;
+    }
+
+    private byte[] frame(byte formatId, byte[] payload, CachedValue meta) {
+        byte flags = meta == null ? 0 : FLAG_REFRESH_META;
+        int metaSize = meta == null ? 0 : REFRESH_META_SIZE;
+        byte[] body = payload;
+        int bodyLength = payload.length;
+        if (compressionThreshold >= 0 && payload.length >= compressionThreshold) {
+            byte[] compressed = new byte[compressor.maxCompressedLength(payload.length)];
+            int compressedLength = compressor.compress(payload, 0, payload.length, compressed, 0, compressed.length);
+            if (compressedLength < payload.length) {
+                flags |= FLAG_LZ4;
+                body = compressed;
+                bodyLength = compressedLength;
+            }
+        }
+        boolean compressed = (flags & FLAG_LZ4) != 0;
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE + metaSize + (compressed ? Integer.BYTES : 0) + bodyLength)
+                .put(MAGIC).put(formatId).put(flags);
+        if (meta != null) {
+            buffer.putInt((int) Math.min(Integer.MAX_VALUE, meta.getComputeMillis()))
+                    .putLong(meta.getExpiresAtMillis());
+        }
+        if (compressed) {
+            buffer.putInt(payload.length);
+        }
+        return buffer.put(body, 0, bodyLength).array();
+    }
+
+    private byte[] payload(byte[] stored) {
+        int offset = HEADER_SIZE + ((stored[2] & FLAG_REFRESH_META) != 0 ? REFRESH_META_SIZE : 0);
+        ByteBuffer buffer = ByteBuffer.wrap(stored, offset, stored.length - offset);
+        if ((stored[2] & FLAG_LZ4) != 0) {
+            int originalLength = buffer.getInt();
+            byte[] restored = new byte[originalLength];
+            decompressor.decompress(stored, offset + Integer.BYTES, restored, 0, originalLength);
+            return restored;
+        }
+        byte[] payload = new byte[buffer.remaining()];
+        buffer.get(payload);
+        return payload;
+    }
+}
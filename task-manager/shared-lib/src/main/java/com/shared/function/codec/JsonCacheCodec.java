@@ -0,0 +1,39 @@
+package com.shared.function.codec;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * UTF-8 JSON text, the format the cache used before entries had a header.
+ */
+public class JsonCacheCodec implements CacheCodec {
+    public static final byte FORMAT_ID = 1;
+
+    private final ObjectMapper objectMapper;
+
+    public JsonCacheCodec(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    public byte formatId() {
+        return FORMAT_ID;
+    }
+
+    @Override
+    public byte[] encode(Object value) throws IOException {
+        return objectMapper.writeValueAsBytes(value);
+    }
+
+    @Override
+    public <T> T decode(byte[] payload, Class<T> clazz) throws IOException {
+        return objectMapper.readValue(payload, clazz);
+    }
+
+    @Override
+    public String toJson(byte[] payload) {
+        return new String(payload, StandardCharsets.UTF_8);
+    }
+}
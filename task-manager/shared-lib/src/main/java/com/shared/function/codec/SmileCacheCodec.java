@@ -0,0 +1,44 @@
+package com.shared.function.codec;
+
+import java.io.IOException;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+
+/**
+ * Binary JSON (Smile). Field names and repeated short strings are back-referenced,
+ * which makes large lists of tasks noticeably smaller and faster to parse than text.
+ */
+public class SmileCacheCodec implements CacheCodec {
+    public static final byte FORMAT_ID = 2;
+
+    private final ObjectMapper smileMapper;
+    private final ObjectMapper jsonMapper;
+
+    public SmileCacheCodec(ObjectMapper jsonMapper) {
+        this.jsonMapper = jsonMapper;
+        this.smileMapper = jsonMapper.copyWith(new SmileFactory());
+    }
+
+    @Override
+    public byte formatId() {
+        return FORMAT_ID;
+    }
+
+    @Override
+    public byte[] encode(Object value) throws IOException {
+        return smileMapper.writeValueAsBytes(value);
+    }
+
+    @Override
+    public <T> T decode(byte[] payload, Class<T> clazz) throws IOException {
+        return smileMapper.readValue(payload, clazz);
+    }
+
+    @Override
+    public String toJson(byte[] payload) throws IOException {
+        JsonNode tree = smileMapper.readTree(payload);
+        return jsonMapper.writeValueAsString(tree);
+    }
+}
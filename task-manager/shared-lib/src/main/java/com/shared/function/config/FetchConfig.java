@@ -22,4 +22,23 @@ public abstract class FetchConfig {
     public void setFetchAll(boolean fetchAll) {
         this.fetchAll = fetchAll;
     }
+
+    /**
+     * The relationships to fetch as a bit mask, one bit per attribute in the
+     * order of the subclass's ATTRIBUTES. Selects the precompiled fetch graph.
+     */
+    public abstract int fetchMask();
+
+    /**
+     * Build a fetch mask from flags given in ATTRIBUTES order.
+     */
+    protected int mask(boolean... flags) {
+        int mask = 0;
+        for (int i = 0; i < flags.length; i++) {
+            if (fetchAll || flags[i]) {
+                mask |= 1 << i;
+            }
+        }
+        return mask;
+    }
 } 
\ No newline at end of file
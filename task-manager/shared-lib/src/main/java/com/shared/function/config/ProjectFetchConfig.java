@@ -1,5 +1,7 @@
 package com.shared.function.config;
 
+import java.util.List;
+
 import lombok.Getter;
 import lombok.Setter;
 
@@ -10,6 +12,9 @@ import lombok.Setter;
 @Getter
 @Setter
 public class ProjectFetchConfig extends FetchConfig {
+    // Fetchable relationships, in fetch mask bit order
+    public static final List<String> ATTRIBUTES = List.of("createdBy", "members", "tasks", "taskStatuses", "tags");
+
     private boolean fetchCreatedBy;
     private boolean fetchMembers;
     private boolean fetchTasks;
@@ -42,17 +47,8 @@ public class ProjectFetchConfig extends FetchConfig {
         return new ProjectFetchConfig(false);
     }
 
-    /**
-     * Builds the JOIN FETCH part of the query based on the fetch configuration.
-     * @return A string containing all the necessary JOIN FETCH clauses.
-     */
-    public String buildJoinFetchClause() {
-        StringBuilder joins = new StringBuilder();
-        if (isFetchAll() || isFetchCreatedBy()) joins.append("LEFT JOIN FETCH p.createdBy ");
-        if (isFetchAll() || isFetchMembers()) joins.append("LEFT JOIN FETCH p.members ");
-        if (isFetchAll() || isFetchTasks()) joins.append("LEFT JOIN FETCH p.tasks ");
-        if (isFetchAll() || isFetchTaskStatuses()) joins.append("LEFT JOIN FETCH p.taskStatuses ");
-        if (isFetchAll() || isFetchTags()) joins.append("LEFT JOIN FETCH p.tags ");
-        return joins.toString();
+    @Override
+    public int fetchMask() {
+        return mask(fetchCreatedBy, fetchMembers, fetchTasks, fetchTaskStatuses, fetchTags);
     }
 } 
\ No newline at end of file
@@ -1,5 +1,7 @@
 package com.shared.function.config;
 
+import java.util.List;
+
 import lombok.Getter;
 import lombok.Setter;
 
@@ -10,6 +12,9 @@ import lombok.Setter;
 @Getter
 @Setter
 public class TaskFetchConfig extends FetchConfig {
+    // Fetchable relationships, in fetch mask bit order
+    public static final List<String> ATTRIBUTES = List.of("project", "createdBy", "status", "assignedTo", "tags");
+
     private boolean fetchProject;
     private boolean fetchCreatedBy;
     private boolean fetchStatus;
@@ -42,17 +47,8 @@ public class TaskFetchConfig extends FetchConfig {
         return new TaskFetchConfig(false);
     }
 
-    /**
-     * Builds the JOIN FETCH part of the query based on the fetch configuration.
-     * @return A string containing all the necessary JOIN FETCH clauses.
-     */
-    public String buildJoinFetchClause() {
-        StringBuilder joins = new StringBuilder();
-        if (isFetchAll() || isFetchProject()) joins.append("LEFT JOIN FETCH t.project ");
-        if (isFetchAll() || isFetchCreatedBy()) joins.append("LEFT JOIN FETCH t.createdBy ");
-        if (isFetchAll() || isFetchStatus()) joins.append("LEFT JOIN FETCH t.status ");
-        if (isFetchAll() || isFetchAssignedTo()) joins.append("LEFT JOIN FETCH t.assignedTo ");
-        if (isFetchAll() || isFetchTags()) joins.append("LEFT JOIN FETCH t.tags ");
-        return joins.toString();
+    @Override
+    public int fetchMask() {
+        return mask(fetchProject, fetchCreatedBy, fetchStatus, fetchAssignedTo, fetchTags);
     }
 } 
\ No newline at end of file
@@ -1,5 +1,7 @@
 package com.shared.function.config;
 
+import java.util.List;
+
 import lombok.Getter;
 import lombok.Setter;
 
@@ -10,6 +12,9 @@ import lombok.Setter;
 @Getter
 @Setter
 public class UserFetchConfig extends FetchConfig {
+    // Fetchable relationships, in fetch mask bit order
+    public static final List<String> ATTRIBUTES = List.of("createdProjects", "memberOfProjects", "createdTasks", "assignedTasks");
+
     private boolean fetchCreatedProjects;
     private boolean fetchMemberOfProjects;
     private boolean fetchCreatedTasks;
@@ -39,16 +44,8 @@ public class UserFetchConfig extends FetchConfig {
         return new UserFetchConfig(false);
     }
 
-    /**
-     * Builds the JOIN FETCH part of the query based on the fetch configuration.
-     * @return A string containing all the necessary JOIN FETCH clauses.
-     */
-    public String buildJoinFetchClause() {
-        StringBuilder joins = new StringBuilder();
-        if (isFetchAll() || isFetchCreatedProjects()) joins.append("LEFT JOIN FETCH u.createdProjects ");
-        if (isFetchAll() || isFetchMemberOfProjects()) joins.append("LEFT JOIN FETCH u.memberOfProjects ");
-        if (isFetchAll() || isFetchCreatedTasks()) joins.append("LEFT JOIN FETCH u.createdTasks ");
-        if (isFetchAll() || isFetchAssignedTasks()) joins.append("LEFT JOIN FETCH u.assignedTasks ");
-        return joins.toString();
+    @Override
+    public int fetchMask() {
+        return mask(fetchCreatedProjects, fetchMemberOfProjects, fetchCreatedTasks, fetchAssignedTasks);
     }
 } 
\ No newline at end of file
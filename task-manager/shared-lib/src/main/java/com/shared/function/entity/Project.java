@@ -7,6 +7,9 @@ import lombok.ToString;
 
 import org.hibernate.annotations.CreationTimestamp;
 import org.hibernate.annotations.UpdateTimestamp;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import com.shared.function.SecondLevelCache;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import java.time.Instant;
@@ -16,9 +19,13 @@ import java.util.Set;
 @Setter
 @Entity
 @Table(name = "projects")
+@NamedQuery(name = Project.FIND_BY_MEMBER, query = "SELECT p FROM Project p JOIN p.members m WHERE m.id = :userId")
 public class Project {
+    public static final String FIND_BY_MEMBER = "Project.findByMember";
+
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "projects_id_seq")
+    @SequenceGenerator(name = "projects_id_seq", sequenceName = "projects_id_seq", allocationSize = 50)
     @Column(name = "id", updatable = false, nullable = false)
     private Integer id;
 
@@ -48,6 +55,7 @@ public class Project {
         joinColumns = @JoinColumn(name = "project_id"),
         inverseJoinColumns = @JoinColumn(name = "user_id")
     )
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = SecondLevelCache.PROJECT_MEMBERS_REGION)
     private Set<User> members;
 
     @JsonIgnore
@@ -56,9 +64,11 @@ public class Project {
 
     @JsonIgnore
     @OneToMany(mappedBy = "project", cascade = CascadeType.ALL)
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = SecondLevelCache.PROJECT_STATUSES_REGION)
     private Set<TaskStatus> taskStatuses;
 
     @JsonIgnore
     @OneToMany(mappedBy = "project", cascade = CascadeType.ALL)
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = SecondLevelCache.PROJECT_TAGS_REGION)
     private Set<ProjectTag> tags;
 }
\ No newline at end of file
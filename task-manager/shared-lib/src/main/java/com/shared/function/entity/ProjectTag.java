@@ -5,6 +5,9 @@ import lombok.Getter;
 import lombok.Setter;
 import lombok.ToString;
 import org.hibernate.annotations.CreationTimestamp;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import com.shared.function.SecondLevelCache;
 
 import java.time.Instant;
 import java.util.Set;
@@ -13,13 +16,17 @@ import java.util.Set;
 @Setter
 @Entity
 @Table(name = "project_tags")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = SecondLevelCache.PROJECT_TAG_REGION)
 public class ProjectTag {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "project_tags_id_seq")
+    @SequenceGenerator(name = "project_tags_id_seq", sequenceName = "project_tags_id_seq", allocationSize = 50)
     @Column(name = "id", updatable = false, nullable = false)
     private Integer id;
 
-    @ManyToOne
+    // Lazy so a cached row is served without loading its project
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "project_id", nullable = false)
     private Project project;
 
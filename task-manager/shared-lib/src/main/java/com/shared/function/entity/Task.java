@@ -15,9 +15,27 @@ import java.util.Set;
 @Setter
 @Entity
 @Table(name = "tasks")
+@NamedQuery(name = Task.FIND_BY_PROJECT, query = "SELECT t FROM Task t WHERE t.project.id = :projectId")
+@NamedQuery(name = Task.FIND_BY_ASSIGNED_USER, query = "SELECT t FROM Task t JOIN t.assignedTo a WHERE a.id = :userId")
+@NamedQuery(name = Task.FIND_BY_CREATED_BY, query = "SELECT t FROM Task t WHERE t.createdBy.id = :userId")
+// keyset pages of the queries above: tasks after the cursor id, in id order
+@NamedQuery(name = Task.FIND_PAGE_BY_PROJECT,
+        query = "SELECT t FROM Task t WHERE t.project.id = :ownerId AND t.id > :after ORDER BY t.id")
+@NamedQuery(name = Task.FIND_PAGE_BY_ASSIGNED_USER,
+        query = "SELECT t FROM Task t JOIN t.assignedTo a WHERE a.id = :ownerId AND t.id > :after ORDER BY t.id")
+@NamedQuery(name = Task.FIND_PAGE_BY_CREATED_BY,
+        query = "SELECT t FROM Task t WHERE t.createdBy.id = :ownerId AND t.id > :after ORDER BY t.id")
 public class Task {
+    public static final String FIND_BY_PROJECT = "Task.findByProject";
+    public static final String FIND_BY_ASSIGNED_USER = "Task.findByAssignedUser";
+    public static final String FIND_BY_CREATED_BY = "Task.findByCreatedBy";
+    public static final String FIND_PAGE_BY_PROJECT = "Task.findPageByProject";
+    public static final String FIND_PAGE_BY_ASSIGNED_USER = "Task.findPageByAssignedUser";
+    public static final String FIND_PAGE_BY_CREATED_BY = "Task.findPageByCreatedBy";
+
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "tasks_id_seq")
+    @SequenceGenerator(name = "tasks_id_seq", sequenceName = "tasks_id_seq", allocationSize = 50)
     @Column(name = "id", updatable = false, nullable = false)
     private Integer id;
 
@@ -5,6 +5,9 @@ import lombok.Getter;
 import lombok.Setter;
 import lombok.NoArgsConstructor;
 import org.hibernate.annotations.CreationTimestamp;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import com.shared.function.SecondLevelCache;
 
 import java.time.Instant;
 
@@ -13,13 +16,17 @@ import java.time.Instant;
 @Entity
 @NoArgsConstructor
 @Table(name = "task_statuses")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = SecondLevelCache.TASK_STATUS_REGION)
 public class TaskStatus {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "task_statuses_id_seq")
+    @SequenceGenerator(name = "task_statuses_id_seq", sequenceName = "task_statuses_id_seq", allocationSize = 50)
     @Column(name = "id", updatable = false, nullable = false)
     private Integer id;
 
-    @ManyToOne
+    // Lazy so a cached row is served without loading its project
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "project_id", nullable = false)
     private Project project;
 
@@ -0,0 +1,132 @@
+package com.shared.function.repository;
+
+import java.sql.Array;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.Collection;
+
+/**
+ * Synchronizes one owner's rows in a many-to-many join table with a desired set
+ * of ids, writing only the difference.
+ *
+ * Replacing a mapped Set makes Hibernate delete every join row of the owner and
+ * insert them all again. Here the current ids are read as ints, diffed against
+ * the desired ids as sorted int arrays, and the removed and added ids are
+ * written with one DELETE and one INSERT over Postgres arrays. No entity on
+ * either side is loaded.
+ */
+final class CollectionSync {
+    private final String table;
+    private final String ownerColumn;
+    private final String targetColumn;
+
+    /**
+     * Ids added to and removed from a join table by one sync.
+     */
+    static final class Diff {
+        final int[] added;
+        final int[] removed;
+
+        Diff(int[] added, int[] removed) {
+            this.added = added;
+            this.removed = removed;
+        }
+
+        boolean isEmpty() {
+            return added.length == 0 && removed.length == 0;
+        }
+    }
+
+    CollectionSync(String table, String ownerColumn, String targetColumn) {
+        this.table = table;
+        this.ownerColumn = ownerColumn;
+        this.targetColumn = targetColumn;
+    }
+
+    /**
+     * Make the owner's rows match the desired ids.
+     * @param connection connection of the caller's transaction
+     * @param ownerId owner of the rows, e.g. the task id
+     * @param desiredIds target ids the owner should end up with; must already be valid
+     * @return the ids that were added and removed
+     */
+    Diff sync(Connection connection, int ownerId, Collection<Integer> desiredIds) throws SQLException {
+        Diff diff = diff(currentIds(connection, ownerId), toSortedSet(desiredIds));
+        if (diff.removed.length > 0) {
+            try (PreparedStatement ps = connection.prepareStatement("DELETE FROM " + table + " WHERE "
+                    + ownerColumn + " = ? AND " + targetColumn + " = ANY(?)")) {
+                ps.setInt(1, ownerId);
+                ps.setArray(2, toSqlArray(connection, diff.removed));
+                ps.executeUpdate();
+            }
+        }
+        if (diff.added.length > 0) {
+            try (PreparedStatement ps = connection.prepareStatement("INSERT INTO " + table + " (" + ownerColumn
+                    + ", " + targetColumn + ") SELECT ?, unnest(?)")) {
+                ps.setInt(1, ownerId);
+                ps.setArray(2, toSqlArray(connection, diff.added));
+                ps.executeUpdate();
+            }
+        }
+        return diff;
+    }
+
+    private int[] currentIds(Connection connection, int ownerId) throws SQLException {
+        try (PreparedStatement ps = connection.prepareStatement("SELECT " + targetColumn + " FROM " + table
+                + " WHERE " + ownerColumn + " = ? ORDER BY " + targetColumn)) {
+            ps.setInt(1, ownerId);
+            try (ResultSet rs = ps.executeQuery()) {
+                int[] ids = new int[16];
+                int size = 0;
+                while (rs.next()) {
+                    if (size == ids.length) {
+                        ids = Arrays.copyOf(ids, size * 2);
+                    }
+                    ids[size++] = rs.getInt(1);
+                }
+                return Arrays.copyOf(ids, size);
+            }
+        }
+    }
+
+    /**
+     * Sorted array of the distinct non-null ids.
+     */
+    static int[] toSortedSet(Collection<Integer> ids) {
+        return ids.stream().filter(id -> id != null).mapToInt(Integer::intValue).sorted().distinct().toArray();
+    }
+
+    /**
+     * Merge walk over two sorted, distinct arrays.
+     */
+    static Diff diff(int[] current, int[] desired) {
+        int[] added = new int[desired.length];
+        int[] removed = new int[current.length];
+        int a = 0;
+        int r = 0;
+        int i = 0;
+        int j = 0;
+        while (i < current.length || j < desired.length) {
+            if (j == desired.length || (i < current.length && current[i] < desired[j])) {
+                removed[r++] = current[i++];
+            } else if (i == current.length || desired[j] < current[i]) {
+                added[a++] = desired[j++];
+            } else {
+                i++;
+                j++;
+            }
+        }
+        return new Diff(Arrays.copyOf(added, a), Arrays.copyOf(removed, r));
+    }
+
+    private static Array toSqlArray(Connection connection, int[] ids) throws SQLException {
+        Integer[] boxed = new Integer[ids.length];
+        for (int k = 0; k < ids.length; k++) {
+            boxed[k] = ids[k];
+        }
+        return connection.createArrayOf("integer", boxed);
+    }
+}
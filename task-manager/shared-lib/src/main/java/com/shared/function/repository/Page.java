@@ -0,0 +1,34 @@
+package com.shared.function.repository;
+
+import java.util.List;
+import java.util.function.Function;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * One page of a keyset-paginated listing: the rows in id order and the cursor
+ * to pass back for the next page, or null when this is the last page.
+ */
+@Getter
+@AllArgsConstructor
+public class Page<T> {
+    private final List<T> items;
+    private final String nextCursor;
+
+    /**
+     * Build a page from a query that fetched one row more than the limit; the
+     * extra row only tells whether another page exists and is dropped.
+     * @param rows up to limit + 1 rows in ascending id order
+     * @param limit page size
+     * @param idOf extracts the keyset id of a row
+     * @return page
+     */
+    static <T> Page<T> of(List<T> rows, int limit, Function<T, Integer> idOf) {
+        if (rows.size() <= limit) {
+            return new Page<>(rows, null);
+        }
+        List<T> items = rows.subList(0, limit);
+        return new Page<>(items, PageCursor.encode(idOf.apply(items.get(limit - 1))));
+    }
+}
@@ -0,0 +1,40 @@
+package com.shared.function.repository;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Opaque continuation token of keyset-paginated listings. It carries the id of
+ * the last row of the previous page; clients must pass it back unchanged.
+ */
+public final class PageCursor {
+    private static final String PREFIX = "v1:";
+
+    private PageCursor() {
+    }
+
+    public static String encode(Integer lastId) {
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString((PREFIX + lastId).getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @param cursor token from a previous page, or null for the first page
+     * @return id to continue after, 0 for the first page
+     * @throws IllegalArgumentException if the token was not produced by encode
+     */
+    public static int decode(String cursor) {
+        if (cursor == null || cursor.isEmpty()) {
+            return 0;
+        }
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            if (!raw.startsWith(PREFIX)) {
+                throw new IllegalArgumentException("Invalid cursor");
+            }
+            return Integer.parseInt(raw.substring(PREFIX.length()));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid cursor", e);
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package com.shared.function.repository;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityNotFoundException;
+import jakarta.persistence.OptimisticLockException;
+import jakarta.persistence.Query;
+
+/**
+ * Writes only the changed columns of one row with a single
+ * UPDATE ... SET changed columns WHERE id = ? RETURNING ...
+ * instead of loading the entity and merging a detached copy.
+ *
+ * On tables with an updated_at column the timestamp doubles as a version:
+ * every update sets it, and a caller that passes the value it last read only
+ * updates the row if nobody changed it since.
+ */
+final class PartialUpdate {
+    private final String table;
+    private final String entityName;
+    private final Set<String> columns;
+    private final boolean versioned;
+    private final String returning;
+
+    /**
+     * @param table the table to update
+     * @param entityName entity name used in error messages, e.g. "Task"
+     * @param columns the columns callers may change
+     * @param versioned whether the table has an updated_at column
+     * @param returning column returned next to updated_at, or null
+     */
+    PartialUpdate(String table, String entityName, Set<String> columns, boolean versioned, String returning) {
+        this.table = table;
+        this.entityName = entityName;
+        this.columns = columns;
+        this.versioned = versioned;
+        this.returning = returning;
+    }
+
+    /**
+     * Update the changed columns of one row.
+     * @param em entity manager of the caller's transaction
+     * @param id id of the row
+     * @param changes new value per column; columns that are absent keep their value
+     * @param expectedVersion updated_at the caller last read, or null to skip the check
+     * @return the returned column (or null) and the new updated_at (or null)
+     * @throws EntityNotFoundException if the row does not exist
+     * @throws OptimisticLockException if the row changed since expectedVersion
+     * @throws IllegalArgumentException if a column may not be changed
+     */
+    Object[] apply(EntityManager em, Integer id, Map<String, Object> changes, Instant expectedVersion) {
+        for (String column : changes.keySet()) {
+            if (!columns.contains(column)) {
+                throw new IllegalArgumentException("Column " + column + " of " + table + " cannot be updated");
+            }
+        }
+        if (changes.isEmpty() && !versioned) {
+            // nothing to write, only look up what the caller expects back
+            List<?> rows = em.createNativeQuery("SELECT " + returning + " FROM " + table + " WHERE id = :id")
+                    .setParameter("id", id)
+                    .getResultList();
+            if (rows.isEmpty()) {
+                throw new EntityNotFoundException(entityName + " with id " + id + " not found");
+            }
+            return new Object[] { rows.get(0), null };
+        }
+
+        StringBuilder sql = new StringBuilder("UPDATE ").append(table).append(" SET ");
+        int index = 0;
+        for (String column : changes.keySet()) {
+            sql.append(column).append(" = :p").append(index++).append(", ");
+        }
+        if (versioned) {
+            // UTC wall-clock time, as hibernate.jdbc.time_zone makes the entities store it;
+            // Instant parameters are bound through the same Hibernate type
+            sql.append("updated_at = now() AT TIME ZONE 'UTC'");
+        } else {
+            sql.setLength(sql.length() - 2);
+        }
+        sql.append(" WHERE id = :id");
+        if (versioned && expectedVersion != null) {
+            sql.append(" AND updated_at = :version");
+        }
+        sql.append(" RETURNING ").append(returning == null ? "NULL" : returning)
+                .append(", ").append(versioned ? "updated_at" : "NULL");
+
+        Query query = em.createNativeQuery(sql.toString()).setParameter("id", id);
+        index = 0;
+        for (Object value : changes.values()) {
+            query.setParameter("p" + index++, value);
+        }
+        if (versioned && expectedVersion != null) {
+            query.setParameter("version", expectedVersion);
+        }
+
+        List<?> rows = query.getResultList();
+        if (rows.isEmpty()) {
+            // only the failure path pays for telling the two cases apart
+            boolean exists = !em.createNativeQuery("SELECT 1 FROM " + table + " WHERE id = :id")
+                    .setParameter("id", id)
+                    .getResultList()
+                    .isEmpty();
+            if (exists) {
+                throw new OptimisticLockException(entityName + " with id " + id + " was changed by someone else");
+            }
+            throw new EntityNotFoundException(entityName + " with id " + id + " not found");
+        }
+        Object[] row = (Object[]) rows.get(0);
+        return new Object[] { row[0], toInstant(row[1]) };
+    }
+
+    private static Instant toInstant(Object value) {
+        // read with the UTC calendar of hibernate.jdbc.time_zone, so the Timestamp is the real instant
+        if (value instanceof Timestamp) {
+            return ((Timestamp) value).toInstant();
+        }
+        return (Instant) value;
+    }
+}
@@ -1,24 +1,39 @@
 package com.shared.function.repository;
 
+import com.shared.function.FetchGraphs;
 import com.shared.function.JpaUtil;
 import com.shared.function.entity.Project;
 import com.shared.function.entity.ProjectTag;
+import com.shared.function.entity.Task;
 import com.shared.function.entity.TaskStatus;
 import com.shared.function.entity.User;
 import com.shared.function.config.ProjectFetchConfig;
+import com.shared.function.DTL.ProjectDetails.ProjectMetadata;
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.EntityTransaction;
 import jakarta.persistence.NoResultException;
 import jakarta.persistence.PersistenceException;
+import jakarta.persistence.OptimisticLockException;
 import jakarta.persistence.EntityNotFoundException;
 import jakarta.persistence.EntityExistsException;
+import org.hibernate.Session;
+import org.hibernate.query.NativeQuery;
+import org.hibernate.jpa.AvailableHints;
 
+import java.time.Instant;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 
 public class ProjectRepository {
+    private static final CollectionSync PROJECT_MEMBERS = new CollectionSync("project_members", "project_id", "user_id");
+    private static final PartialUpdate PROJECT_UPDATE = new PartialUpdate("projects", "Project",
+            Set.of("name", "description"), true, null);
+
     /**
      * Find a project by its ID with configurable fetch settings.
      * 
@@ -27,14 +42,8 @@ public class ProjectRepository {
      * @return The project with the given ID, or null if it does not exist.
      */
     public Project findById(Integer id, ProjectFetchConfig fetchConfig) {
-        try (EntityManager em = JpaUtil.getEntityManager()) {
-            return em
-                    .createQuery("SELECT p FROM Project p " + fetchConfig.buildJoinFetchClause() + "WHERE p.id = :id",
-                            Project.class)
-                    .setParameter("id", id)
-                    .getSingleResult();
-        } catch (NoResultException e) {
-            return null;
+        try (EntityManager em = JpaUtil.getReadEntityManager()) {
+            return em.find(Project.class, id, FetchGraphs.hints(em, Project.class, fetchConfig));
         }
     }
 
@@ -48,21 +57,185 @@ public class ProjectRepository {
         return findById(id, ProjectFetchConfig.none());
     }
 
-    public Project getProjectDetails(Integer id) {
+    /**
+     * Check whether a user is a member of a project, with a single probe of the
+     * project_members primary key. No entity is loaded.
+     * 
+     * @param userId    The ID of the user.
+     * @param projectId The ID of the project.
+     * @return true if the user is a member of the project.
+     */
+    public boolean isMember(Integer userId, Integer projectId) {
         try (EntityManager em = JpaUtil.getEntityManager()) {
-            return em.createQuery(
+            return !em.createNativeQuery("SELECT 1 FROM project_members WHERE project_id = :projectId AND user_id = :userId",
+                    Integer.class)
+                    .setParameter("projectId", projectId)
+                    .setParameter("userId", userId)
+                    .getResultList()
+                    .isEmpty();
+        }
+    }
+
+    /**
+     * Load a project with everything needed for ProjectDetails.
+     * 
+     * Each query fetches at most one collection into the same persistence context,
+     * so the row count is the sum of the collection sizes rather than their product
+     * (one JOIN FETCH over all of them returns tasks x task tags x assignees x
+     * members x tags x statuses rows). The plan is always five statements.
+     * 
+     * @param id The ID of the project.
+     * @return The project with members, tags, statuses and tasks initialized, or
+     *         null if it does not exist.
+     */
+    public Project getProjectDetails(Integer id) {
+        try (EntityManager em = JpaUtil.getReadEntityManager()) {
+            Project project = em.createQuery(
                     "SELECT p FROM Project p " +
-                            "LEFT JOIN FETCH p.members " +
-                            "LEFT JOIN FETCH p.tags " +
-                            "LEFT JOIN FETCH p.taskStatuses " +
                             "LEFT JOIN FETCH p.createdBy " +
-                            "LEFT JOIN FETCH p.tasks t " +
-                            "LEFT JOIN FETCH t.tags " +
-                            "LEFT JOIN FETCH t.assignedTo " +
+                            "LEFT JOIN FETCH p.members " +
                             "WHERE p.id = :id",
                     Project.class)
                     .setParameter("id", id)
                     .getSingleResult();
+
+            em.createQuery("SELECT p FROM Project p LEFT JOIN FETCH p.tags WHERE p.id = :id", Project.class)
+                    .setParameter("id", id)
+                    .getSingleResult();
+
+            em.createQuery("SELECT p FROM Project p LEFT JOIN FETCH p.taskStatuses WHERE p.id = :id", Project.class)
+                    .setParameter("id", id)
+                    .getSingleResult();
+
+            // Tasks with their tags; statuses and tags are already in the persistence context
+            em.createQuery("SELECT p FROM Project p " +
+                    "LEFT JOIN FETCH p.tasks t " +
+                    "LEFT JOIN FETCH t.tags " +
+                    "WHERE p.id = :id", Project.class)
+                    .setParameter("id", id)
+                    .getSingleResult();
+
+            // Assignees and creators of the tasks loaded above
+            em.createQuery("SELECT DISTINCT t FROM Task t " +
+                    "LEFT JOIN FETCH t.createdBy " +
+                    "LEFT JOIN FETCH t.assignedTo " +
+                    "WHERE t.project.id = :id", Task.class)
+                    .setParameter("id", id)
+                    .getResultList();
+
+            return project;
+        } catch (NoResultException e) {
+            return null;
+        }
+    }
+
+    /**
+     * SQL that renders the ProjectDetails JSON of a project in Postgres.
+     * The text is concatenated by hand rather than with json_build_object, which
+     * inserts spaces after ':' and ',', so the output has the fields, field order,
+     * values and ISO-8601 instants Jackson writes for ProjectDetails, without
+     * whitespace. It is the same document but not always the same bytes: the id
+     * lists, which come from sets, may be in another order, and control
+     * characters are escaped with lowercase hex digits where Jackson uses uppercase.
+     * Tasks are paged by id; the second column is the id of the last task of the
+     * page when another page follows, and null otherwise.
+     */
+    private static final String PROJECT_DETAILS_JSON_SQL =
+            "WITH page AS (SELECT t.*, row_number() OVER (ORDER BY t.id) AS rn FROM tasks t" +
+            "       WHERE t.project_id = :id AND t.id > :after ORDER BY t.id LIMIT :limit + 1) " +
+            "SELECT '{\"project\":{\"id\":' || p.id" +
+            " || ',\"name\":' || " + jsonText("p.name") +
+            " || ',\"description\":' || " + jsonText("p.description") +
+            " || ',\"members\":' || (SELECT COALESCE('[' || string_agg(pm.user_id::text, ',') || ']', '[]')" +
+            "       FROM project_members pm WHERE pm.project_id = p.id)" +
+            " || ',\"created_at\":' || " + jsonInstant("p.created_at") +
+            " || ',\"updated_at\":' || " + jsonInstant("p.updated_at") +
+            " || '},\"tasks\":' || (SELECT COALESCE('[' || string_agg(" +
+            "       '{\"id\":' || t.id" +
+            "       || ',\"name\":' || " + jsonText("t.task_name") +
+            "       || ',\"content\":' || " + jsonText("t.content") +
+            "       || ',\"priority\":' || " + jsonNumber("t.priority") +
+            "       || ',\"created_by\":' || " + jsonNumber("t.created_by") +
+            "       || ',\"start_time\":' || " + jsonInstant("t.start_time") +
+            "       || ',\"end_time\":' || " + jsonInstant("t.end_time") +
+            "       || ',\"created_at\":' || " + jsonInstant("t.created_at") +
+            "       || ',\"updated_at\":' || " + jsonInstant("t.updated_at") +
+            "       || ',\"status_id\":' || " + jsonNumber("t.status_id") +
+            "       || ',\"tag_ids\":' || (SELECT COALESCE('[' || string_agg(tt.tag_id::text, ',') || ']', '[]')" +
+            "             FROM task_tags tt WHERE tt.task_id = t.id)" +
+            "       || ',\"assigned_to\":' || (SELECT COALESCE('[' || string_agg(ta.user_id::text, ',') || ']', '[]')" +
+            "             FROM task_assignments ta WHERE ta.task_id = t.id)" +
+            "       || '}', ',' ORDER BY t.id) || ']', '[]')" +
+            "       FROM page t WHERE t.rn <= :limit)" +
+            " || ',\"tag_map\":' || (SELECT COALESCE('{' || string_agg(" +
+            "       '\"' || g.id || '\":{\"name\":' || " + jsonText("g.tag_name") +
+            "       || ',\"color\":' || " + jsonText("g.color") + " || '}', ',' ORDER BY g.id) || '}', '{}')" +
+            "       FROM project_tags g WHERE g.project_id = p.id)" +
+            " || ',\"status_map\":' || (SELECT COALESCE('{' || string_agg(" +
+            "       '\"' || s.id || '\":{\"name\":' || " + jsonText("s.status_name") +
+            "       || ',\"description\":' || " + jsonText("s.description") +
+            "       || ',\"color\":' || " + jsonText("s.color") + " || '}', ',' ORDER BY s.id) || '}', '{}')" +
+            "       FROM task_statuses s WHERE s.project_id = p.id)" +
+            " || '}', " +
+            "(SELECT CASE WHEN count(*) > :limit THEN max(t.id) FILTER (WHERE t.rn <= :limit) END FROM page t) " +
+            "FROM projects p WHERE p.id = :id";
+
+    private static String jsonText(String column) {
+        return "COALESCE(to_json(" + column + ")::text, 'null')";
+    }
+
+    private static String jsonNumber(String column) {
+        return "COALESCE(" + column + "::text, 'null')";
+    }
+
+    /**
+     * Format a timestamp like Instant.toString: seconds always present, fraction
+     * only when non-zero and then in groups of three digits.
+     */
+    private static String jsonInstant(String column) {
+        String micros = "(EXTRACT(MICROSECONDS FROM " + column + ")::int % 1000000)";
+        return "CASE WHEN " + column + " IS NULL THEN 'null' ELSE '\"' || to_char(" + column
+                + ", 'YYYY-MM-DD\"T\"HH24:MI:SS') || CASE WHEN " + micros + " = 0 THEN ''"
+                + " WHEN " + micros + " % 1000 = 0 THEN '.' || lpad((" + micros + " / 1000)::text, 3, '0')"
+                + " ELSE '.' || lpad(" + micros + "::text, 6, '0') END || 'Z\"' END";
+    }
+
+    /**
+     * Render the ProjectDetails JSON of a project directly in the database, in
+     * one statement and without loading any entity.
+     * 
+     * @param id The ID of the project.
+     * @return The JSON document, or null if the project does not exist.
+     */
+    public String getProjectDetailsJson(Integer id) {
+        return getProjectDetailsJson(id, null, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Render the ProjectDetails JSON of a project with one page of its tasks.
+     * When more tasks follow, the document gains a "next_cursor" field to pass
+     * back for the next page.
+     * 
+     * @param id     The ID of the project.
+     * @param cursor The cursor of the previous page, or null for the first page.
+     * @param limit  The maximum number of tasks to include.
+     * @return The JSON document, or null if the project does not exist.
+     * @throws IllegalArgumentException if the cursor is invalid
+     */
+    public String getProjectDetailsJson(Integer id, String cursor, int limit) {
+        int after = PageCursor.decode(cursor);
+        try (EntityManager em = JpaUtil.getReadEntityManager()) {
+            Object[] row = (Object[]) em.createNativeQuery(PROJECT_DETAILS_JSON_SQL)
+                    .setParameter("id", id)
+                    .setParameter("after", after)
+                    .setParameter("limit", (long) limit)
+                    .getSingleResult();
+            String json = (String) row[0];
+            if (row[1] == null) {
+                return json;
+            }
+            String nextCursor = PageCursor.encode(((Number) row[1]).intValue());
+            return json.substring(0, json.length() - 1) + ",\"next_cursor\":\"" + nextCursor + "\"}";
         } catch (NoResultException e) {
             return null;
         }
@@ -100,28 +273,31 @@ public class ProjectRepository {
     }
 
     /**
-     * Update an existing project in the database.
+     * Update only the given columns of a project in one statement, without loading it.
+     * updated_at is set on every update and acts as the project's version.
      * 
-     * @param project The project to update.
-     * @return The updated project instance.
-     * @throws PersistenceException    if the update fails
+     * @param projectId         The ID of the project to update.
+     * @param changes           New value per column ("name", "description").
+     * @param expectedUpdatedAt The updated_at the caller last read, or null to skip the check.
+     * @return The new updated_at of the project.
      * @throws EntityNotFoundException if the project does not exist
+     * @throws OptimisticLockException if the project changed since expectedUpdatedAt
+     * @throws PersistenceException    if the update fails
      */
-    public Project updateProject(Project project) {
+    public Instant patchProject(Integer projectId, Map<String, Object> changes, Instant expectedUpdatedAt) {
         EntityTransaction tx = null;
         try (EntityManager em = JpaUtil.getEntityManager()) {
             tx = em.getTransaction();
             tx.begin();
 
-            // Check if project exists
-            if (project.getId() == null || em.find(Project.class, project.getId()) == null) {
+            Object[] result = PROJECT_UPDATE.apply(em, projectId, changes, expectedUpdatedAt);
+            tx.commit();
+            return (Instant) result[1];
+        } catch (EntityNotFoundException | OptimisticLockException | IllegalArgumentException e) {
+            if (tx != null && tx.isActive()) {
                 tx.rollback();
-                throw new EntityNotFoundException("Project with id " + project.getId() + " not found");
             }
-
-            Project updatedProject = em.merge(project);
-            tx.commit();
-            return updatedProject;
+            throw e;
         } catch (Exception e) {
             if (tx != null && tx.isActive()) {
                 tx.rollback();
@@ -131,24 +307,42 @@ public class ProjectRepository {
     }
 
     /**
-     * Delete a project by its ID from the database.
+     * Delete a project and everything in it from the database with one bulk
+     * DELETE, without loading any entity.
      * 
      * @param id The ID of the project to delete.
-     * @throws PersistenceException    if the deletion fails
-     * @throws EntityNotFoundException if the project does not exist
+     * @return true if the project existed and was deleted.
+     * @throws PersistenceException if the deletion fails
      */
-    public void deleteProject(Integer id) {
+    public boolean deleteProject(Integer id) {
         EntityTransaction tx = null;
         try (EntityManager em = JpaUtil.getEntityManager()) {
             tx = em.getTransaction();
             tx.begin();
-            Project project = em.find(Project.class, id);
-            if (project == null) {
-                tx.rollback();
-                throw new EntityNotFoundException("Project with id " + id + " not found");
-            }
-            em.remove(project);
+            // One statement: the foreign keys cascade to members, statuses, tags and
+            // the task join tables. Tasks go first in the same statement because
+            // tasks.status_id is ON DELETE RESTRICT.
+            // The declared spaces limit second-level cache eviction to what this touches
+            int deleted = em.createNativeQuery("WITH deleted_tasks AS (DELETE FROM tasks WHERE project_id = :id) "
+                    + "DELETE FROM projects WHERE id = :id")
+                    .unwrap(NativeQuery.class)
+                    .addSynchronizedEntityClass(Project.class)
+                    .addSynchronizedEntityClass(Task.class)
+                    .addSynchronizedEntityClass(TaskStatus.class)
+                    .addSynchronizedEntityClass(ProjectTag.class)
+                    .addSynchronizedQuerySpace("project_members")
+                    .addSynchronizedQuerySpace("task_tags")
+                    .addSynchronizedQuerySpace("task_assignments")
+                    .setParameter("id", id)
+                    .executeUpdate();
             tx.commit();
+            // the declared spaces only evict this replica's cache
+            JpaUtil.evictAll(TaskStatus.class);
+            JpaUtil.evictAll(ProjectTag.class);
+            for (String collection : List.of("members", "taskStatuses", "tags")) {
+                JpaUtil.evictCollection(Project.class.getName() + "." + collection, id);
+            }
+            return deleted > 0;
         } catch (Exception e) {
             if (tx != null && tx.isActive()) {
                 tx.rollback();
@@ -165,11 +359,10 @@ public class ProjectRepository {
      * @return A list of projects where the user is a member.
      */
     public List<Project> findByMember(Integer userId, ProjectFetchConfig fetchConfig) {
-        try (EntityManager em = JpaUtil.getEntityManager()) {
-            return em
-                    .createQuery("SELECT DISTINCT p FROM Project p " + fetchConfig.buildJoinFetchClause()
-                            + "JOIN p.members m WHERE m.id = :userId", Project.class)
+        try (EntityManager em = JpaUtil.getReadEntityManager()) {
+            return em.createNamedQuery(Project.FIND_BY_MEMBER, Project.class)
                     .setParameter("userId", userId)
+                    .setHint(AvailableHints.HINT_SPEC_LOAD_GRAPH, FetchGraphs.of(em, Project.class, fetchConfig))
                     .getResultList();
         }
     }
@@ -184,6 +377,79 @@ public class ProjectRepository {
         return findByMember(userId, ProjectFetchConfig.none());
     }
 
+    /**
+     * Find one page of the projects where a user is a member, in id order.
+     * 
+     * @param userId The ID of the user.
+     * @param cursor The cursor of the previous page, or null for the first page.
+     * @param limit  The maximum number of projects to return.
+     * @return A page of projects where the user is a member.
+     * @throws IllegalArgumentException if the cursor is invalid
+     */
+    public Page<Project> findByMember(Integer userId, String cursor, int limit) {
+        try (EntityManager em = JpaUtil.getReadEntityManager()) {
+            List<Project> rows = em
+                    .createQuery("SELECT p FROM Project p JOIN p.members m WHERE m.id = :userId AND p.id > :after "
+                            + "ORDER BY p.id", Project.class)
+                    .setParameter("userId", userId)
+                    .setParameter("after", PageCursor.decode(cursor))
+                    .setMaxResults(limit + 1)
+                    .getResultList();
+            return Page.of(rows, limit, Project::getId);
+        }
+    }
+
+    /**
+     * Stream the metadata of every project a user is a member of, in id order,
+     * without loading Project entities. Rows are read through a server-side cursor
+     * in batches of STREAM_FETCH_SIZE.
+     * 
+     * @param userId The ID of the user.
+     * @param action Called once per project, inside the read transaction.
+     * @throws PersistenceException if the query fails
+     */
+    public void forEachMemberProject(Integer userId, Consumer<ProjectMetadata> action) {
+        EntityTransaction tx = null;
+        try (EntityManager em = JpaUtil.getReadEntityManager()) {
+            // Postgres only honours the fetch size inside a transaction
+            tx = em.getTransaction();
+            tx.begin();
+            try (Stream<Object[]> rows = em.createQuery("SELECT p.id, p.name, p.description, p.createdAt, p.updatedAt "
+                    + "FROM Project p JOIN p.members m WHERE m.id = :userId ORDER BY p.id", Object[].class)
+                    .setParameter("userId", userId)
+                    .setHint(AvailableHints.HINT_FETCH_SIZE, JpaUtil.STREAM_FETCH_SIZE)
+                    .setHint(AvailableHints.HINT_READ_ONLY, true)
+                    .getResultStream()) {
+                rows.forEach(row -> action.accept(new ProjectMetadata((Integer) row[0], (String) row[1],
+                        (String) row[2], (Instant) row[3], (Instant) row[4], null)));
+            }
+            tx.commit();
+        } catch (Exception e) {
+            if (tx != null && tx.isActive()) {
+                tx.rollback();
+            }
+            throw new PersistenceException("Error streaming projects: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Cheap fingerprint of the projects a user is a member of, used as an ETag.
+     * It changes when a project is added, removed or updated.
+     * 
+     * @param userId The ID of the user.
+     * @return version string
+     */
+    public String findMemberProjectsVersion(Integer userId) {
+        try (EntityManager em = JpaUtil.getReadEntityManager()) {
+            Object[] row = em.createQuery("SELECT COUNT(p), MAX(p.updatedAt), SUM(p.id) FROM Project p " +
+                    "JOIN p.members m WHERE m.id = :userId", Object[].class)
+                    .setParameter("userId", userId)
+                    .getSingleResult();
+            Instant lastUpdate = (Instant) row[1];
+            return row[0] + "-" + (lastUpdate == null ? 0 : lastUpdate.toEpochMilli()) + "-" + row[2];
+        }
+    }
+
     /**
      * Add a member to a project.
      * 
@@ -254,11 +520,12 @@ public class ProjectRepository {
 
     /**
      * Overwrites the existing members of a project with a new set of members.
+     * Only the rows that change are written and no User entity is loaded; ids of
+     * users that do not exist are ignored.
      * 
      * @param projectId  The ID of the project to update
      * @param newUserIds List of user IDs that will be the new members
-     * @throws EntityNotFoundException if either the project or any user does not
-     *                                 exist
+     * @throws PersistenceException if the project does not exist or the update fails
      */
     public void updateProjectMembers(Integer projectId, List<Integer> newUserIds) {
         EntityTransaction tx = null;
@@ -266,22 +533,21 @@ public class ProjectRepository {
             tx = em.getTransaction();
             tx.begin();
 
-            // Find the project
-            Project project = em.find(Project.class, projectId);
-            if (project == null) {
+            if (em.createNativeQuery("SELECT 1 FROM projects WHERE id = :id", Integer.class)
+                    .setParameter("id", projectId)
+                    .getResultList()
+                    .isEmpty()) {
                 throw new EntityNotFoundException("Project with id " + projectId + " not found");
             }
 
-            Set<User> newMembers = em.createQuery("SELECT u FROM User u WHERE u.id IN :userIds", User.class)
-                    .setParameter("userIds", newUserIds)
-                    .getResultList()
-                    .stream()
-                    .collect(Collectors.toSet());
-            
-            project.setMembers(newMembers);
-
-            em.merge(project);
+            List<Integer> validIds = newUserIds.isEmpty() ? List.of()
+                    : em.createQuery("SELECT u.id FROM User u WHERE u.id IN :userIds", Integer.class)
+                            .setParameter("userIds", newUserIds)
+                            .getResultList();
+            em.unwrap(Session.class).doWork(connection -> PROJECT_MEMBERS.sync(connection, projectId, validIds));
             tx.commit();
+            // the sync bypasses Hibernate, so its caches are not told about it
+            JpaUtil.evictCollection(Project.class.getName() + ".members", projectId);
         } catch (Exception e) {
             if (tx != null && tx.isActive()) {
                 tx.rollback();
@@ -289,52 +555,4 @@ public class ProjectRepository {
             throw new PersistenceException("Error overwriting project members: " + e.getMessage(), e);
         }
     }
-
-    public User findMemberById(Integer userId, Integer projectId) {
-        try (EntityManager em = JpaUtil.getEntityManager()) {
-            return em.createQuery("SELECT u FROM User u " +
-                    "JOIN u.memberOfProjects p " +
-                    "WHERE u.id = :userId AND p.id = :projectId", User.class)
-                    .setParameter("userId", userId)
-                    .setParameter("projectId", projectId)
-                    .getSingleResult();
-        } catch (NoResultException e) {
-            return null;
-        }
-    }
-
-    public List<ProjectTag> findAllTagsById(List<Integer> ids, Integer projectId) {
-        try (EntityManager em = JpaUtil.getEntityManager()) {
-            return em
-                    .createQuery("SELECT t FROM ProjectTag t WHERE t.id IN :ids AND t.project.id = :projectId",
-                            ProjectTag.class)
-                    .setParameter("ids", ids)
-                    .setParameter("projectId", projectId)
-                    .getResultList();
-        }
-    }
-
-    public List<User> findAllUsersById(List<Integer> ids, Integer projectId) {
-        try (EntityManager em = JpaUtil.getEntityManager()) {
-            return em.createQuery("SELECT u FROM User u " +
-                    "JOIN u.memberOfProjects p " +
-                    "WHERE u.id IN :ids AND p.id = :projectId", User.class)
-                    .setParameter("ids", ids)
-                    .setParameter("projectId", projectId)
-                    .getResultList();
-        }
-    }
-
-    public TaskStatus findStatusById(Integer id, Integer projectId) {
-        try (EntityManager em = JpaUtil.getEntityManager()) {
-            return em
-                    .createQuery("SELECT s FROM TaskStatus s WHERE s.id = :id AND s.project.id = :projectId",
-                            TaskStatus.class)
-                    .setParameter("id", id)
-                    .setParameter("projectId", projectId)
-                    .getSingleResult();
-        } catch (NoResultException e) {
-            return null;
-        }
-    }
 }
@@ -3,14 +3,20 @@ package com.shared.function.repository;
 import com.shared.function.entity.ProjectTag;
 import com.shared.function.JpaUtil;
 
+import java.util.Map;
+import java.util.Set;
+
 import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityNotFoundException;
 import jakarta.persistence.PersistenceException;
 import jakarta.persistence.EntityTransaction;
 
 public class ProjectTagRepository {
+    private static final PartialUpdate TAG_UPDATE = new PartialUpdate("project_tags", "Tag",
+            Set.of("tag_name", "color"), false, "project_id");
 
     public ProjectTag findById(Integer id) {
-        try (EntityManager em = JpaUtil.getEntityManager()) {
+        try (EntityManager em = JpaUtil.getReadEntityManager()) {
             return em.find(ProjectTag.class, id);
         }
     }
@@ -36,26 +42,37 @@ public class ProjectTagRepository {
         }
     }
 
-    public ProjectTag updateTag(ProjectTag tag) {
-        if (tag.getId() == null) {
-            throw new IllegalArgumentException("Tag ID must not be null when updating a tag");
-        }
-
+    /**
+     * Update only the given columns of a tag in one statement, without loading it.
+     * @param id The ID of the tag to update.
+     * @param changes New value per column (tag_name, color).
+     * @return The ID of the project the tag belongs to.
+     * @throws EntityNotFoundException if the tag does not exist
+     * @throws PersistenceException if the update fails
+     */
+    public Integer patchTag(Integer id, Map<String, Object> changes) {
         EntityTransaction tx = null;
         try (EntityManager em = JpaUtil.getEntityManager()) {
             tx = em.getTransaction();
             tx.begin();
 
-            em.merge(tag);
+            Object[] result = TAG_UPDATE.apply(em, id, changes, null);
             tx.commit();
-            return tag;
-        } catch (PersistenceException e) {
+            JpaUtil.evict(ProjectTag.class, id);
+            return (Integer) result[0];
+        } catch (EntityNotFoundException | IllegalArgumentException e) {
+            if (tx != null && tx.isActive()) {
+                tx.rollback();
+            }
+            throw e;
+        } catch (Exception e) {
             if (tx != null && tx.isActive()) {
                 tx.rollback();
             }
             throw new PersistenceException("Error updating tag: " + e.getMessage(), e);
         }
     }
+
     public void deleteTag(Integer id) {
         EntityTransaction tx = null;
         try (EntityManager em = JpaUtil.getEntityManager()) {
@@ -1,10 +1,24 @@
 package com.shared.function.repository;
 
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Collection;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.function.Function;
 
+import com.shared.function.FetchGraphs;
 import com.shared.function.JpaUtil;
+import com.shared.function.entity.Project;
+import com.shared.function.entity.ProjectTag;
 import com.shared.function.entity.Task;
 import com.shared.function.entity.TaskStatus;
 import com.shared.function.entity.User;
@@ -12,20 +26,30 @@ import com.shared.function.config.TaskFetchConfig;
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.EntityTransaction;
 import jakarta.persistence.PersistenceException;
+import jakarta.persistence.OptimisticLockException;
 import jakarta.persistence.EntityNotFoundException;
 import jakarta.persistence.EntityExistsException;
+import org.hibernate.Session;
+import org.hibernate.jpa.AvailableHints;
 
 public class TaskRepository {
+    // Rows per JDBC batch in bulk inserts
+    private static final int BULK_BATCH_SIZE = 500;
+    // Must match the allocationSize of the Task id generator and the sequence increment
+    private static final int ID_ALLOCATION_SIZE = 50;
+    private static final CollectionSync TASK_ASSIGNMENTS = new CollectionSync("task_assignments", "task_id", "user_id");
+    private static final CollectionSync TASK_TAGS = new CollectionSync("task_tags", "task_id", "tag_id");
+    private static final PartialUpdate TASK_UPDATE = new PartialUpdate("tasks", "Task",
+            Set.of("task_name", "content", "start_time", "end_time", "priority", "status_id"), true, null);
+
     /**
      * Find a task by its ID.
      * @param id The ID of the task to find.
      * @return The task with the given ID, or null if it does not exist.
      */
     public Task findById(Integer id, TaskFetchConfig fetchConfig) {
-        try (EntityManager em = JpaUtil.getEntityManager()) {
-            return em.createQuery("SELECT t FROM Task t " + fetchConfig.buildJoinFetchClause() + "WHERE t.id = :id", Task.class)
-                    .setParameter("id", id)
-                    .getSingleResult();
+        try (EntityManager em = JpaUtil.getReadEntityManager()) {
+            return em.find(Task.class, id, FetchGraphs.hints(em, Task.class, fetchConfig));
         }
     }
 
@@ -75,27 +99,156 @@ public class TaskRepository {
     }
 
     /**
-     * Update an existing task in the database.
-     * @param task The task to update.
-     * @return The updated task instance.
-     * @throws PersistenceException if the update fails
-     * @throws EntityNotFoundException if the task does not exist
+     * Check whether a task exists, with a single primary key probe.
+     * @param id The ID of the task.
+     * @return true if the task exists.
      */
-    public Task updateTask(Task task) {
+    public boolean existsById(Integer id) {
+        return projectIdOfTask(id) != null;
+    }
+
+    /**
+     * Find the project a task belongs to without loading the task.
+     * @param taskId The ID of the task.
+     * @return The ID of the task's project, or null if the task does not exist.
+     */
+    public Integer projectIdOfTask(Integer taskId) {
+        try (EntityManager em = JpaUtil.getEntityManager()) {
+            List<Integer> ids = em.createNativeQuery("SELECT project_id FROM tasks WHERE id = :id", Integer.class)
+                    .setParameter("id", taskId)
+                    .getResultList();
+            return ids.isEmpty() ? null : ids.get(0);
+        }
+    }
+
+    /**
+     * Insert many tasks in one transaction with JDBC batches, bypassing the
+     * persistence context. The tasks, their tags and their assignees are each
+     * written in batches of BULK_BATCH_SIZE rows. Ids are reserved from the task
+     * sequence in blocks and set on the given instances. Project, creator, status, tags and assignees must
+     * already be validated by the caller.
+     * @param tasks The tasks to create.
+     * @return The given tasks, with ids and timestamps set.
+     * @throws PersistenceException if any insert fails; nothing is written then
+     */
+    public List<Task> createTasks(List<Task> tasks) {
         EntityTransaction tx = null;
         try (EntityManager em = JpaUtil.getEntityManager()) {
             tx = em.getTransaction();
             tx.begin();
-            
-            // Check if task exists
-            if (task.getId() == null || em.find(Task.class, task.getId()) == null) {
+            em.unwrap(Session.class).doWork(connection -> {
+                insertTasks(connection, tasks);
+                insertJoinRows(connection, "INSERT INTO task_tags (task_id, tag_id) VALUES (?, ?)",
+                        tasks, task -> task.getTags() == null ? List.of() : task.getTags().stream().map(ProjectTag::getId).toList());
+                insertJoinRows(connection, "INSERT INTO task_assignments (task_id, user_id) VALUES (?, ?)",
+                        tasks, task -> task.getAssignedTo() == null ? List.of() : task.getAssignedTo().stream().map(User::getId).toList());
+            });
+            tx.commit();
+            return tasks;
+        } catch (Exception e) {
+            if (tx != null && tx.isActive()) {
                 tx.rollback();
-                throw new EntityNotFoundException("Task with id " + task.getId() + " not found");
             }
-            
-            Task updatedTask = em.merge(task);
+            throw new PersistenceException("Error creating tasks: " + e.getMessage(), e);
+        }
+    }
+
+    private void insertTasks(Connection connection, List<Task> tasks) throws SQLException {
+        // Reserve ids the way Hibernate's pooled-lo optimizer does, one sequence call per block
+        int blocks = (tasks.size() + ID_ALLOCATION_SIZE - 1) / ID_ALLOCATION_SIZE;
+        try (PreparedStatement ps = connection.prepareStatement(
+                "SELECT nextval('tasks_id_seq') FROM generate_series(1, ?)")) {
+            ps.setInt(1, blocks);
+            try (ResultSet rs = ps.executeQuery()) {
+                int index = 0;
+                while (rs.next()) {
+                    int low = rs.getInt(1);
+                    for (int i = 0; i < ID_ALLOCATION_SIZE && index < tasks.size(); i++) {
+                        tasks.get(index++).setId(low + i);
+                    }
+                }
+            }
+        }
+
+        // Columns are timestamp without time zone holding UTC, as Hibernate writes Instants (hibernate.jdbc.time_zone)
+        Instant now = Instant.now();
+        LocalDateTime nowUtc = LocalDateTime.ofInstant(now, ZoneOffset.UTC);
+        try (PreparedStatement ps = connection.prepareStatement(
+                "INSERT INTO tasks (id, project_id, created_by, task_name, content, start_time, end_time, "
+                        + "created_at, updated_at, status_id, priority) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)")) {
+            int pending = 0;
+            for (Task task : tasks) {
+                ps.setInt(1, task.getId());
+                ps.setInt(2, task.getProject().getId());
+                ps.setInt(3, task.getCreatedBy().getId());
+                ps.setString(4, task.getTaskName());
+                ps.setString(5, task.getContent());
+                ps.setObject(6, LocalDateTime.ofInstant(task.getStartTime(), ZoneOffset.UTC));
+                ps.setObject(7, LocalDateTime.ofInstant(task.getEndTime(), ZoneOffset.UTC));
+                ps.setObject(8, nowUtc);
+                ps.setObject(9, nowUtc);
+                ps.setInt(10, task.getStatus().getId());
+                ps.setObject(11, task.getPriority(), Types.INTEGER);
+                ps.addBatch();
+                task.setCreatedAt(now);
+                task.setUpdatedAt(now);
+                if (++pending == BULK_BATCH_SIZE) {
+                    ps.executeBatch();
+                    pending = 0;
+                }
+            }
+            if (pending > 0) {
+                ps.executeBatch();
+            }
+        }
+    }
+
+    private void insertJoinRows(Connection connection, String sql, List<Task> tasks,
+            Function<Task, List<Integer>> targetIds) throws SQLException {
+        try (PreparedStatement ps = connection.prepareStatement(sql)) {
+            int pending = 0;
+            for (Task task : tasks) {
+                for (Integer id : targetIds.apply(task)) {
+                    ps.setInt(1, task.getId());
+                    ps.setInt(2, id);
+                    ps.addBatch();
+                    if (++pending == BULK_BATCH_SIZE) {
+                        ps.executeBatch();
+                        pending = 0;
+                    }
+                }
+            }
+            if (pending > 0) {
+                ps.executeBatch();
+            }
+        }
+    }
+
+    /**
+     * Update only the given columns of a task in one statement, without loading it.
+     * updated_at is set on every update and acts as the task's version.
+     * @param taskId The ID of the task to update.
+     * @param changes New value per column, e.g. "status_id" to move the task.
+     * @param expectedUpdatedAt The updated_at the caller last read, or null to skip the check.
+     * @return The new updated_at of the task.
+     * @throws EntityNotFoundException if the task does not exist
+     * @throws OptimisticLockException if the task changed since expectedUpdatedAt
+     * @throws PersistenceException if the update fails
+     */
+    public Instant patchTask(Integer taskId, Map<String, Object> changes, Instant expectedUpdatedAt) {
+        EntityTransaction tx = null;
+        try (EntityManager em = JpaUtil.getEntityManager()) {
+            tx = em.getTransaction();
+            tx.begin();
+
+            Object[] result = TASK_UPDATE.apply(em, taskId, changes, expectedUpdatedAt);
             tx.commit();
-            return updatedTask;
+            return (Instant) result[1];
+        } catch (EntityNotFoundException | OptimisticLockException | IllegalArgumentException e) {
+            if (tx != null && tx.isActive()) {
+                tx.rollback();
+            }
+            throw e;
         } catch (Exception e) {
             if (tx != null && tx.isActive()) {
                 tx.rollback();
@@ -137,9 +290,10 @@ public class TaskRepository {
      * @return A list of tasks in the project.
      */
     public List<Task> findByProject(Integer projectId, TaskFetchConfig fetchConfig) {
-        try (EntityManager em = JpaUtil.getEntityManager()) {
-            return em.createQuery("SELECT DISTINCT t FROM Task t " + fetchConfig.buildJoinFetchClause() + "WHERE t.project.id = :projectId", Task.class)
+        try (EntityManager em = JpaUtil.getReadEntityManager()) {
+            return em.createNamedQuery(Task.FIND_BY_PROJECT, Task.class)
                     .setParameter("projectId", projectId)
+                    .setHint(AvailableHints.HINT_SPEC_LOAD_GRAPH, FetchGraphs.of(em, Task.class, fetchConfig))
                     .getResultList();
         }
     }
@@ -153,15 +307,28 @@ public class TaskRepository {
         return findByProject(projectId, TaskFetchConfig.none());
     }
 
+    /**
+     * Find one page of the tasks in a project, in id order.
+     * @param projectId The ID of the project.
+     * @param cursor The cursor of the previous page, or null for the first page.
+     * @param limit The maximum number of tasks to return.
+     * @return A page of tasks in the project.
+     * @throws IllegalArgumentException if the cursor is invalid
+     */
+    public Page<Task> findByProject(Integer projectId, String cursor, int limit) {
+        return findPage(Task.FIND_PAGE_BY_PROJECT, projectId, cursor, limit);
+    }
+
     /**
      * Find all tasks assigned to a user.
      * @param userId The ID of the user.
      * @return A list of tasks assigned to the user.
      */
     public List<Task> findByAssignedUser(Integer userId, TaskFetchConfig fetchConfig) {
-        try (EntityManager em = JpaUtil.getEntityManager()) {
-            return em.createQuery("SELECT DISTINCT t FROM Task t " + fetchConfig.buildJoinFetchClause() + "JOIN t.assignedTo a WHERE a.id = :userId", Task.class)
+        try (EntityManager em = JpaUtil.getReadEntityManager()) {
+            return em.createNamedQuery(Task.FIND_BY_ASSIGNED_USER, Task.class)
                     .setParameter("userId", userId)
+                    .setHint(AvailableHints.HINT_SPEC_LOAD_GRAPH, FetchGraphs.of(em, Task.class, fetchConfig))
                     .getResultList();
         }
     }
@@ -175,15 +342,28 @@ public class TaskRepository {
         return findByAssignedUser(userId, TaskFetchConfig.none());
     }
 
+    /**
+     * Find one page of the tasks assigned to a user, in id order.
+     * @param userId The ID of the user.
+     * @param cursor The cursor of the previous page, or null for the first page.
+     * @param limit The maximum number of tasks to return.
+     * @return A page of tasks assigned to the user.
+     * @throws IllegalArgumentException if the cursor is invalid
+     */
+    public Page<Task> findByAssignedUser(Integer userId, String cursor, int limit) {
+        return findPage(Task.FIND_PAGE_BY_ASSIGNED_USER, userId, cursor, limit);
+    }
+
     /**
      * Find all tasks created by a user.
      * @param userId The ID of the user.
      * @return A list of tasks created by the user.
      */
     public List<Task> findByCreatedBy(Integer userId, TaskFetchConfig fetchConfig) {
-        try (EntityManager em = JpaUtil.getEntityManager()) {
-            return em.createQuery("SELECT DISTINCT t FROM Task t " + fetchConfig.buildJoinFetchClause() + "WHERE t.createdBy.id = :userId", Task.class)
+        try (EntityManager em = JpaUtil.getReadEntityManager()) {
+            return em.createNamedQuery(Task.FIND_BY_CREATED_BY, Task.class)
                     .setParameter("userId", userId)
+                    .setHint(AvailableHints.HINT_SPEC_LOAD_GRAPH, FetchGraphs.of(em, Task.class, fetchConfig))
                     .getResultList();
         }
     }
@@ -196,6 +376,33 @@ public class TaskRepository {
         return findByCreatedBy(userId, TaskFetchConfig.none());
     }
 
+    /**
+     * Find one page of the tasks created by a user, in id order.
+     * @param userId The ID of the user.
+     * @param cursor The cursor of the previous page, or null for the first page.
+     * @param limit The maximum number of tasks to return.
+     * @return A page of tasks created by the user.
+     * @throws IllegalArgumentException if the cursor is invalid
+     */
+    public Page<Task> findByCreatedBy(Integer userId, String cursor, int limit) {
+        return findPage(Task.FIND_PAGE_BY_CREATED_BY, userId, cursor, limit);
+    }
+
+    /**
+     * Run one of the keyset-paginated named task queries, which bind :ownerId and :after.
+     */
+    private Page<Task> findPage(String queryName, Integer ownerId, String cursor, int limit) {
+        int after = PageCursor.decode(cursor);
+        try (EntityManager em = JpaUtil.getReadEntityManager()) {
+            List<Task> rows = em.createNamedQuery(queryName, Task.class)
+                    .setParameter("ownerId", ownerId)
+                    .setParameter("after", after)
+                    .setMaxResults(limit + 1)
+                    .getResultList();
+            return Page.of(rows, limit, Task::getId);
+        }
+    }
+
     /**
      * Assign a task to a user.
      * @param taskId The ID of the task.
@@ -262,49 +469,74 @@ public class TaskRepository {
         }
     }
 
-    public Task updateTaskAssignments(Integer taskId, List<Integer> newUserIds) {
+    /**
+     * Replace the assignees of a task, writing only the rows that change.
+     * No User entity is loaded.
+     * @param taskId The ID of the task.
+     * @param userIds The IDs of the users who should be assigned; they must already
+     *                be validated as members of the task's project, e.g. with TaskWriteValidator.
+     * @throws PersistenceException if the update fails
+     */
+    public void updateTaskAssignments(Integer taskId, List<Integer> userIds) {
+        syncTaskCollection(taskId, userIds, TASK_ASSIGNMENTS);
+    }
+
+    /**
+     * Replace the tags of a task, writing only the rows that change.
+     * @param taskId The ID of the task.
+     * @param tagIds The IDs of the tags the task should have; they must already be
+     *               validated as tags of the task's project, e.g. with TaskWriteValidator.
+     * @throws PersistenceException if the update fails
+     */
+    public void updateTaskTags(Integer taskId, List<Integer> tagIds) {
+        syncTaskCollection(taskId, tagIds, TASK_TAGS);
+    }
+
+    private void syncTaskCollection(Integer taskId, List<Integer> ids, CollectionSync joinTable) {
         EntityTransaction tx = null;
         try (EntityManager em = JpaUtil.getEntityManager()) {
             tx = em.getTransaction();
             tx.begin();
 
-            // Get the task
-            Task task = em.find(Task.class, taskId);
-            if (task == null) {
-                throw new EntityNotFoundException("Task with id " + taskId + " not found");
-            }
-
-            // Get the current assignments
-            Set<User> currentAssignments = task.getAssignedTo();
-
-            // Create a set of new user IDs for efficient lookup
-            Set<Integer> newUserIdSet = new HashSet<>(newUserIds);
-
-            // Remove users that are no longer assigned
-            currentAssignments.removeIf(user -> !newUserIdSet.contains(user.getId()));
-
-            // Add new users
-            for (Integer userId : newUserIds) {
-                if (currentAssignments.stream().noneMatch(user -> user.getId().equals(userId))) {
-                    User user = em.find(User.class, userId);
-                    if (user == null) {
-                        throw new EntityNotFoundException("User with id " + userId + " not found");
-                    }
-                    currentAssignments.add(user);
-                }
-            }
-            
-            // Update the task with the new assignments
-            task.setAssignedTo(currentAssignments);
-            em.merge(task);
+            em.unwrap(Session.class).doWork(connection -> joinTable.sync(connection, taskId, ids));
             tx.commit();
-
-            return task;
         } catch (Exception e) {
             if (tx != null && tx.isActive()) {
                 tx.rollback();
             }
-            throw new PersistenceException("Error updating task assignments: " + e.getMessage(), e);
+            throw new PersistenceException("Error updating task collection: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Point a new task at its project, creator, status, tags and assignees by id,
+     * without loading any of them. The ids must already be validated, e.g. with
+     * TaskWriteValidator.
+     * @param task The new task.
+     * @param projectId The ID of the project.
+     * @param creatorId The ID of the creating user.
+     * @param statusId The ID of the status.
+     * @param tagIds The IDs of the tags.
+     * @param assigneeIds The IDs of the assigned users.
+     * @return the task
+     */
+    public Task attachReferences(Task task, Integer projectId, Integer creatorId, Integer statusId,
+            Collection<Integer> tagIds, Collection<Integer> assigneeIds) {
+        try (EntityManager em = JpaUtil.getEntityManager()) {
+            task.setProject(em.getReference(Project.class, projectId));
+            task.setCreatedBy(em.getReference(User.class, creatorId));
+            task.setStatus(em.getReference(TaskStatus.class, statusId));
+            Set<ProjectTag> tags = new HashSet<>();
+            for (Integer tagId : tagIds) {
+                tags.add(em.getReference(ProjectTag.class, tagId));
+            }
+            task.setTags(tags);
+            Set<User> assignees = new HashSet<>();
+            for (Integer userId : assigneeIds) {
+                assignees.add(em.getReference(User.class, userId));
+            }
+            task.setAssignedTo(assignees);
+            return task;
         }
     }
 }
@@ -3,14 +3,20 @@ package com.shared.function.repository;
 import com.shared.function.entity.TaskStatus;
 import com.shared.function.JpaUtil;
 
+import java.util.Map;
+import java.util.Set;
+
 import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityNotFoundException;
 import jakarta.persistence.PersistenceException;
 import jakarta.persistence.EntityTransaction;
 
 public class TaskStatusRepository {
+    private static final PartialUpdate STATUS_UPDATE = new PartialUpdate("task_statuses", "Status",
+            Set.of("status_name", "description", "color"), false, "project_id");
 
     public TaskStatus findById(Integer id) {
-        try (EntityManager em = JpaUtil.getEntityManager()) {
+        try (EntityManager em = JpaUtil.getReadEntityManager()) {
             return em.find(TaskStatus.class, id);
         }
     }
@@ -36,24 +42,30 @@ public class TaskStatusRepository {
         }
     }
 
-    public TaskStatus updateStatus(TaskStatus status) {
-        if (status.getId() == null) {
-            throw new IllegalArgumentException("Status ID must not be null when updating a status");
-        }
-
-        if (status.getProject() == null) {
-            throw new IllegalArgumentException("Project must not be null when updating a status");
-        }
-
+    /**
+     * Update only the given columns of a status in one statement, without loading it.
+     * @param id The ID of the status to update.
+     * @param changes New value per column (status_name, description, color).
+     * @return The ID of the project the status belongs to.
+     * @throws EntityNotFoundException if the status does not exist
+     * @throws PersistenceException if the update fails
+     */
+    public Integer patchStatus(Integer id, Map<String, Object> changes) {
         EntityTransaction tx = null;
         try (EntityManager em = JpaUtil.getEntityManager()) {
             tx = em.getTransaction();
             tx.begin();
 
-            em.merge(status);
+            Object[] result = STATUS_UPDATE.apply(em, id, changes, null);
             tx.commit();
-            return status;
-        } catch (PersistenceException e) {
+            JpaUtil.evict(TaskStatus.class, id);
+            return (Integer) result[0];
+        } catch (EntityNotFoundException | IllegalArgumentException e) {
+            if (tx != null && tx.isActive()) {
+                tx.rollback();
+            }
+            throw e;
+        } catch (Exception e) {
             if (tx != null && tx.isActive()) {
                 tx.rollback();
             }
@@ -1,7 +1,9 @@
 package com.shared.function.repository;
 
+import com.shared.function.FetchGraphs;
 import com.shared.function.JpaUtil;
 import com.shared.function.entity.User;
+import com.shared.function.DTL.UserOverview;
 import com.shared.function.entity.Project;
 import com.shared.function.entity.Task;
 import com.shared.function.config.ProjectFetchConfig;
@@ -12,10 +14,23 @@ import jakarta.persistence.EntityTransaction;
 import jakarta.persistence.PersistenceException;
 import jakarta.persistence.EntityNotFoundException;
 import jakarta.persistence.EntityExistsException;
+import jakarta.persistence.OptimisticLockException;
+import org.hibernate.CacheMode;
+import org.hibernate.Session;
+import org.hibernate.jpa.AvailableHints;
 
+import java.time.Instant;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 public class UserRepository {
+    private static final PartialUpdate USER_UPDATE = new PartialUpdate("users", "User",
+            Set.of("user_name", "email", "password"), true, null);
+
     /**
      * Find a user by their ID with configurable fetch settings.
      * @param id The ID of the user to find.
@@ -23,27 +38,40 @@ public class UserRepository {
      * @return The user with the given ID, or null if they do not exist.
      */
     public User findById(Integer id, UserFetchConfig fetchConfig) {
-        try (EntityManager em = JpaUtil.getEntityManager()) {
-            return em.createQuery("SELECT u FROM User u " + fetchConfig.buildJoinFetchClause() + "WHERE u.id = :id", User.class)
-                    .setParameter("id", id)
-                    .getSingleResult();
+        try (EntityManager em = JpaUtil.getReadEntityManager()) {
+            return em.find(User.class, id, FetchGraphs.hints(em, User.class, fetchConfig));
         }
     }
 
     /**
-     * Find a user by their ID.
+     * Find a user by their ID, served from the second-level cache when present.
+     * None of the user's relationships are loaded.
      * @param id The ID of the user to find.
      * @return The user with the given ID, or null if they do not exist.
      */
     public User findById(Integer id) {
-        return findById(id, UserFetchConfig.all());
+        try (EntityManager em = JpaUtil.getReadEntityManager()) {
+            return em.find(User.class, id);
+        }
     }
 
+    /**
+     * Find users by their IDs with one query. The users are read from the
+     * database, bypassing the second-level cache: callers copy them into the
+     * shared Redis cache, where an entry another replica has not evicted yet
+     * would outlive its eviction.
+     * @param ids The IDs of the users to find.
+     * @return The users that exist, in the order of ids.
+     */
     public List<User> findAllById(List<Integer> ids) {
-        try (EntityManager em = JpaUtil.getEntityManager()) {
-            return em.createQuery("SELECT u FROM User u WHERE u.id IN :ids", User.class)
-                    .setParameter("ids", ids)
-                    .getResultList();
+        try (EntityManager em = JpaUtil.getReadEntityManager()) {
+            return em.unwrap(Session.class)
+                    .byMultipleIds(User.class)
+                    .with(CacheMode.IGNORE)
+                    .multiLoad(ids)
+                    .stream()
+                    .filter(Objects::nonNull)
+                    .toList();
         }
     }
 
@@ -78,27 +106,30 @@ public class UserRepository {
     }
 
     /**
-     * Update an existing user in the database.
-     * @param user The user to update.
-     * @return The updated user instance.
-     * @throws PersistenceException if the update fails
+     * Update only the given columns of a user in one statement, without loading it.
+     * @param userId The ID of the user to update.
+     * @param changes New value per column ("user_name", "email", "password").
+     * @param expectedUpdatedAt The updated_at the caller last read, or null to skip the check.
+     * @return The new updated_at of the user.
      * @throws EntityNotFoundException if the user does not exist
+     * @throws OptimisticLockException if the user changed since expectedUpdatedAt
+     * @throws PersistenceException if the update fails
      */
-    public User updateUser(User user) {
+    public Instant patchUser(Integer userId, Map<String, Object> changes, Instant expectedUpdatedAt) {
         EntityTransaction tx = null;
         try (EntityManager em = JpaUtil.getEntityManager()) {
             tx = em.getTransaction();
             tx.begin();
-            
-            // Check if user exists
-            if (user.getId() == null || em.find(User.class, user.getId()) == null) {
+
+            Object[] result = USER_UPDATE.apply(em, userId, changes, expectedUpdatedAt);
+            tx.commit();
+            JpaUtil.evict(User.class, userId);
+            return (Instant) result[1];
+        } catch (EntityNotFoundException | OptimisticLockException | IllegalArgumentException e) {
+            if (tx != null && tx.isActive()) {
                 tx.rollback();
-                throw new EntityNotFoundException("User with id " + user.getId() + " not found");
             }
-            
-            User updatedUser = em.merge(user);
-            tx.commit();
-            return updatedUser;
+            throw e;
         } catch (Exception e) {
             if (tx != null && tx.isActive()) {
                 tx.rollback();
@@ -140,9 +171,10 @@ public class UserRepository {
      * @return The user with the given email, or null if not found.
      */
     public User findByEmail(String email, UserFetchConfig fetchConfig) {
-        try (EntityManager em = JpaUtil.getEntityManager()) {
-            List<User> users = em.createQuery("SELECT u FROM User u " + fetchConfig.buildJoinFetchClause() + "WHERE u.email = :email", User.class)
+        try (EntityManager em = JpaUtil.getReadEntityManager()) {
+            List<User> users = em.createNamedQuery(User.FIND_BY_EMAIL, User.class)
                     .setParameter("email", email)
+                    .setHint(AvailableHints.HINT_SPEC_LOAD_GRAPH, FetchGraphs.of(em, User.class, fetchConfig))
                     .getResultList();
             return users.isEmpty() ? null : users.get(0);
         }
@@ -157,8 +189,71 @@ public class UserRepository {
         return findByEmail(email, UserFetchConfig.none());
     }
 
+    /**
+     * Cheap fingerprint of the users table, used as an ETag.
+     * It changes when a user is added, removed or updated.
+     * @return version string
+     */
+    public String findAllVersion() {
+        try (EntityManager em = JpaUtil.getReadEntityManager()) {
+            Object[] row = em.createQuery("SELECT COUNT(u), MAX(u.updatedAt), SUM(u.id) FROM User u", Object[].class)
+                    .getSingleResult();
+            Instant lastUpdate = (Instant) row[1];
+            return row[0] + "-" + (lastUpdate == null ? 0 : lastUpdate.toEpochMilli()) + "-" + row[2];
+        }
+    }
+
+    /**
+     * Find one page of all users, in id order.
+     * @param cursor The cursor of the previous page, or null for the first page.
+     * @param limit The maximum number of users to return.
+     * @return A page of users.
+     * @throws IllegalArgumentException if the cursor is invalid
+     */
+    public Page<User> findAll(String cursor, int limit) {
+        int after = PageCursor.decode(cursor);
+        try (EntityManager em = JpaUtil.getReadEntityManager()) {
+            List<User> rows = em.createQuery("SELECT u FROM User u WHERE u.id > :after ORDER BY u.id", User.class)
+                    .setParameter("after", after)
+                    .setMaxResults(limit + 1)
+                    .getResultList();
+            return Page.of(rows, limit, User::getId);
+        } catch (Exception e) {
+            throw new PersistenceException("Error retrieving users: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Stream the overview of every user, in id order, without loading User entities.
+     * Rows are read through a server-side cursor in batches of STREAM_FETCH_SIZE, and
+     * no entities or persistence-context snapshots are created for them. The
+     * rendered response is still held in memory whole.
+     * @param action Called once per user, inside the read transaction.
+     * @throws PersistenceException if the query fails
+     */
+    public void forEachUserOverview(Consumer<UserOverview> action) {
+        EntityTransaction tx = null;
+        try (EntityManager em = JpaUtil.getReadEntityManager()) {
+            // Postgres only honours the fetch size inside a transaction
+            tx = em.getTransaction();
+            tx.begin();
+            try (Stream<Object[]> rows = em.createQuery("SELECT u.id, u.userName, u.email FROM User u ORDER BY u.id", Object[].class)
+                    .setHint(AvailableHints.HINT_FETCH_SIZE, JpaUtil.STREAM_FETCH_SIZE)
+                    .setHint(AvailableHints.HINT_READ_ONLY, true)
+                    .getResultStream()) {
+                rows.forEach(row -> action.accept(new UserOverview((Integer) row[0], (String) row[1], (String) row[2])));
+            }
+            tx.commit();
+        } catch (Exception e) {
+            if (tx != null && tx.isActive()) {
+                tx.rollback();
+            }
+            throw new PersistenceException("Error streaming users: " + e.getMessage(), e);
+        }
+    }
+
     public List<User> findAll() {
-        try (EntityManager em = JpaUtil.getEntityManager()) {
+        try (EntityManager em = JpaUtil.getReadEntityManager()) {
             return em.createQuery("SELECT u FROM User u", User.class)
                     .getResultList();
         } catch (Exception e) {
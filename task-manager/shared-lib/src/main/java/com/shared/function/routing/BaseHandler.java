@@ -1,26 +1,49 @@
 package com.shared.function.routing;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
 import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
 import com.openfaas.model.IRequest;
 import com.openfaas.model.IResponse;
 import com.openfaas.model.Response;
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.SerializationFeature;
 import com.fasterxml.jackson.databind.util.StdDateFormat;
 import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.shared.function.CacheKeys;
 import com.shared.function.JpaUtil;
 import com.shared.function.JwtUtil;
 import com.shared.function.RedisCacheClient;
 import com.shared.function.Secret;
+import com.shared.function.SecondLevelCacheSync;
+import com.shared.function.TwoTierCache;
+import com.shared.function.UnitOfWork;
 
 public abstract class BaseHandler extends com.openfaas.model.AbstractHandler {
+    protected static final int DEFAULT_PAGE_SIZE = 100;
+    protected static final int MAX_PAGE_SIZE = 500;
+    private static final int INITIAL_BUFFER_BYTES = 8 * 1024;
+    private static final int MAX_RETAINED_BUFFER_BYTES = 1024 * 1024;
+    private static final ThreadLocal<ResponseBuffer> RESPONSE_BUFFER = ThreadLocal.withInitial(ResponseBuffer::new);
+
     protected final ObjectMapper objectMapper;
     protected final Map<String, RouteHandler> routeHandlers;
     private final Secret secret = new Secret();
     protected final boolean isPublicApi;
     protected RedisCacheClient redisCacheClient;
+    protected TwoTierCache cache;
 
     protected BaseHandler() {
         this(false);
@@ -46,6 +69,14 @@ public abstract class BaseHandler extends com.openfaas.model.AbstractHandler {
             System.err.println("Error initializing RedisCacheClient: " + e.getMessage());
             redisCacheClient = null;
         }
+        cache = new TwoTierCache(redisCacheClient);
+        if (redisCacheClient != null) {
+            try {
+                SecondLevelCacheSync.connect(redisCacheClient);
+            } catch (Exception e) {
+                System.err.println("Failed to subscribe to second-level cache evictions: " + e.getMessage());
+            }
+        }
 
         JpaUtil.ping();
     }
@@ -61,6 +92,177 @@ public abstract class BaseHandler extends com.openfaas.model.AbstractHandler {
         }
     }
 
+    /**
+     * Writes a response body token by token.
+     */
+    @FunctionalInterface
+    protected interface JsonBodyWriter {
+        void write(JsonGenerator generator) throws IOException;
+    }
+
+    /**
+     * Serialize a response body with a streaming generator instead of building an
+     * object tree first. The bytes go to a per-thread buffer that is reused across
+     * requests; only the final String handed to Response.setBody is allocated.
+     * @param writer writes one complete JSON value
+     * @return serialized body
+     */
+    protected String streamJson(JsonBodyWriter writer) {
+        ResponseBuffer buffer = RESPONSE_BUFFER.get();
+        buffer.reset();
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(buffer, JsonEncoding.UTF8)) {
+            writer.write(generator);
+        } catch (IOException | UncheckedIOException e) {
+            throw new IllegalStateException("JSON serialization failed: " + e.getMessage(), e);
+        }
+        String body = buffer.toString(StandardCharsets.UTF_8);
+        // Do not pin the memory of an unusually large response to the thread
+        if (buffer.capacity() > MAX_RETAINED_BUFFER_BYTES) {
+            RESPONSE_BUFFER.remove();
+        }
+        return body;
+    }
+
+    /**
+     * Adapts the generator to a row callback, for streaming repository reads
+     * straight into a JSON array.
+     */
+    protected <T> Consumer<T> writeEach(JsonGenerator generator) {
+        return row -> {
+            try {
+                generator.writeObject(row);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        };
+    }
+
+    private static class ResponseBuffer extends ByteArrayOutputStream {
+        ResponseBuffer() {
+            super(INITIAL_BUFFER_BYTES);
+        }
+
+        int capacity() {
+            return buf.length;
+        }
+    }
+
+    /**
+     * Read a cached response body. Cache failures are logged and reported as a miss
+     * so that a Redis outage never fails the request.
+     * @param key
+     * @return cached body or null on miss
+     */
+    protected String cacheGet(String key) {
+        try {
+            return cache.get(key);
+        } catch (Exception e) {
+            System.err.println("WARN: Cache read failed for " + key + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Read a cached response body, building it with the loader on a miss.
+     * Concurrent misses for the same key share a single load. Loader errors
+     * propagate; cache errors fall back to calling the loader directly.
+     * @param key
+     * @param ttlSeconds
+     * @param loader returns the serialized body, or null if there is nothing to cache
+     * @return body or null if the loader returned null
+     */
+    protected String cacheGetOrLoad(String key, long ttlSeconds, Supplier<String> loader) {
+        return cache.getOrLoad(key, ttlSeconds, loader);
+    }
+
+    /**
+     * Store a serialized response body in the cache. The Redis write is dispatched
+     * asynchronously so the response does not wait for the reply.
+     * @param key
+     * @param body
+     * @param ttlSeconds
+     */
+    protected void cachePut(String key, String body, long ttlSeconds) {
+        try {
+            cache.put(key, body, ttlSeconds);
+        } catch (Exception e) {
+            System.err.println("WARN: Cache write failed for " + key + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Remove a cache entry after the data behind it has changed, on this and
+     * every other replica.
+     * @param key
+     */
+    protected void cacheEvict(String key) {
+        // inside a unit of work, evict only once the change is committed
+        UnitOfWork.afterCommit(() -> {
+            try {
+                cache.evict(key);
+            } catch (Exception e) {
+                System.err.println("WARN: Cache eviction failed for " + key + ": " + e.getMessage());
+            }
+        });
+    }
+
+    /**
+     * Current cache generation of a project, to be embedded in its cache keys.
+     * @param projectId
+     * @return generation, 0 if the cache is unavailable
+     */
+    protected long projectGeneration(Integer projectId) {
+        try {
+            return cache.generation(CacheKeys.projectGeneration(projectId));
+        } catch (Exception e) {
+            System.err.println("WARN: Cache generation read failed for project " + projectId + ": " + e.getMessage());
+            return 0;
+        }
+    }
+
+    /**
+     * Invalidate every cached view of a project after any write to it, its
+     * tasks, statuses or tags.
+     * @param projectId
+     */
+    protected void invalidateProject(Integer projectId) {
+        // inside a unit of work, invalidate only once the change is committed
+        UnitOfWork.afterCommit(() -> {
+            try {
+                cache.bumpGeneration(CacheKeys.projectGeneration(projectId));
+            } catch (Exception e) {
+                System.err.println("WARN: Cache invalidation failed for project " + projectId + ": " + e.getMessage());
+            }
+        });
+    }
+
+    /**
+     * Run a route handler in a request-scoped UnitOfWork: every repository call it
+     * makes shares one EntityManager, connection and transaction, committed once at
+     * the end. An error response (status 400 or above) rolls the transaction back.
+     * @param handler
+     * @return the handler's response, or a 500 if the work could not be committed
+     */
+    protected IResponse inUnitOfWork(Supplier<IResponse> handler) {
+        try (UnitOfWork unitOfWork = UnitOfWork.begin()) {
+            IResponse response = handler.get();
+            if (response.getStatusCode() >= 400) {
+                unitOfWork.rollback();
+                return response;
+            }
+            if (!unitOfWork.commit()) {
+                throw new IllegalStateException("transaction was marked for rollback");
+            }
+            return response;
+        } catch (Exception e) {
+            System.err.println("ERROR: Unit of work failed: " + e.getMessage());
+            Response res = new Response();
+            res.setStatusCode(500);
+            res.setBody(toJson(Map.of("success", false, "error", "Failed to commit changes: " + e.getMessage())));
+            return res;
+        }
+    }
+
     protected String getHttpMethod(IRequest req) {
         String method;
         if (req.getHeaders().get("X-Http-Method-Override") != null) {
@@ -75,6 +277,43 @@ public abstract class BaseHandler extends com.openfaas.model.AbstractHandler {
         return method.toUpperCase();
     }
 
+    protected String getHeaderIgnoreCase(IRequest req, String name) {
+        Map<String, String> headers = req.getHeaders();
+        if (headers == null) {
+            return null;
+        }
+        String value = headers.get(name);
+        if (value != null) {
+            return value;
+        }
+        for (Map.Entry<String, String> header : headers.entrySet()) {
+            if (header.getKey() != null && header.getKey().equalsIgnoreCase(name)) {
+                return header.getValue();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Whether the If-None-Match header of the request matches the given ETag.
+     */
+    private boolean matchesETag(IRequest req, String etag) {
+        String ifNoneMatch = getHeaderIgnoreCase(req, "If-None-Match");
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            String tag = candidate.trim();
+            if (tag.startsWith("W/")) {
+                tag = tag.substring(2);
+            }
+            if (tag.equals(etag) || tag.equals("*")) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     protected Response invalidToken(String invalidToken, Response res) {
         res.setStatusCode(401);
         if (invalidToken == null) {
@@ -85,6 +324,27 @@ public abstract class BaseHandler extends com.openfaas.model.AbstractHandler {
         return res;
     }
 
+    /**
+     * The updated_at a client last read, sent back in an update body so the update
+     * only applies if nobody changed the row since.
+     * @param body
+     * @return the expected version, or null if the client did not send one
+     * @throws DateTimeParseException if updated_at is not an ISO-8601 instant
+     */
+    protected Instant expectedVersion(JsonNode body) {
+        JsonNode version = body.path("updated_at");
+        if (!version.isTextual() || version.asText().isEmpty()) {
+            return null;
+        }
+        return Instant.parse(version.asText());
+    }
+
+    protected Response versionConflict(Response res, String message) {
+        res.setStatusCode(409);
+        res.setBody(toJson(Map.of("error", "Conflict", "message", message)));
+        return res;
+    }
+
     protected Response methodNotAllowed(Response res) {
         res.setStatusCode(405);
         res.setBody(toJson(Map.of("error", "Method not allowed")));
@@ -126,10 +386,13 @@ public abstract class BaseHandler extends com.openfaas.model.AbstractHandler {
                 return methodNotAllowed(res);
             }
 
-            // Execute the handler and append header content-type to the response
-            IResponse response = handler.getHandler(method).apply(req);
-            response.setHeader("Content-Type", "application/json");
-            return response;
+            if (handler.getVersionSource(method) == null) {
+                return respond(req, route, method, handler, res);
+            }
+            // Conditional responses outlive the request, as ETags held by clients and as
+            // entries of the shared cache, so they are read from the primary: a lagging
+            // replica would pin its stale data under a current version
+            return JpaUtil.readFromPrimary(() -> respond(req, route, method, handler, res));
 
         } catch (Exception e) {
             res.setStatusCode(500);
@@ -138,6 +401,91 @@ public abstract class BaseHandler extends com.openfaas.model.AbstractHandler {
         }
     }
 
+    /**
+     * Answer a request the route supports: from the version source if the client
+     * already has the current version, otherwise by running the handler.
+     */
+    private IResponse respond(IRequest req, String route, String method, RouteHandler handler, Response res) {
+        // Answer conditional requests from the route's version source, before any loading
+        String etag = null;
+        Function<IRequest, String> versionSource = handler.getVersionSource(method);
+        if (versionSource != null) {
+            String version;
+            try {
+                version = versionSource.apply(req);
+            } catch (Exception e) {
+                System.err.println("WARN: Version lookup failed for " + route + ": " + e.getMessage());
+                version = null;
+            }
+            if (version != null) {
+                etag = "\"" + version + "\"";
+                if (matchesETag(req, etag)) {
+                    res.setStatusCode(304);
+                    res.setHeader("ETag", etag);
+                    res.setBody("");
+                    return res;
+                }
+            }
+        }
+
+        // Keep reads on the primary while this request writes and shortly after
+        boolean writes = !"GET".equals(method) && !"HEAD".equals(method);
+        if (writes) {
+            JpaUtil.markWrite();
+        }
+        // Execute the handler and append header content-type to the response
+        IResponse response;
+        try {
+            response = handler.getHandler(method).apply(req);
+        } finally {
+            if (writes) {
+                JpaUtil.markWrite();
+            }
+        }
+        response.setHeader("Content-Type", "application/json");
+        if (etag != null && response.getStatusCode() == 200) {
+            response.setHeader("ETag", etag);
+        }
+        return response;
+    }
+
+    /**
+     * Whether the request asked for a page, through the limit or cursor query parameter.
+     * Listings stay unpaged otherwise so existing clients keep receiving the full list.
+     */
+    protected boolean isPageRequest(IRequest req) {
+        Map<String, String> queryParams = req.getQuery();
+        return queryParams != null && (queryParams.containsKey("limit") || queryParams.containsKey("cursor"));
+    }
+
+    /**
+     * Page size from the limit query parameter, clamped to MAX_PAGE_SIZE.
+     * @return page size, or null after writing a 400 response
+     */
+    protected Integer pageLimit(IRequest req, Response res) {
+        String limit = req.getQuery().get("limit");
+        if (limit == null) {
+            return DEFAULT_PAGE_SIZE;
+        }
+        try {
+            int value = Integer.parseInt(limit.trim());
+            if (value <= 0) {
+                throw new NumberFormatException("limit must be positive");
+            }
+            return Math.min(value, MAX_PAGE_SIZE);
+        } catch (NumberFormatException e) {
+            res.setStatusCode(400);
+            res.setBody(toJson(Map.of("error", "Bad Request", "message", "Invalid format for limit")));
+            return null;
+        }
+    }
+
+    protected Response invalidCursor(Response res) {
+        res.setStatusCode(400);
+        res.setBody(toJson(Map.of("error", "Bad Request", "message", "Invalid cursor")));
+        return res;
+    }
+
     public <T> T validateQueryParam(IRequest req, Response res, String key, Class<T> clazz) {
         try {
             Map<String, String> queryParams = req.getQuery();
@@ -8,17 +8,37 @@ import java.util.function.Function;
 
 public class RouteHandler {
     private final Map<String, Function<IRequest, IResponse>> methods = new HashMap<>();
+    private final Map<String, Function<IRequest, String>> versionSources = new HashMap<>();
 
     public RouteHandler addMethod(String method, Function<IRequest, IResponse> handler) {
         methods.put(method.toUpperCase(), handler);
         return this;
     }
 
+    /**
+     * Register a method whose responses can be revalidated with ETag / If-None-Match.
+     * The version source must be much cheaper than the handler; it returns a value
+     * that changes whenever the response would, or null if it cannot tell.
+     * @param method
+     * @param versionSource
+     * @param handler
+     * @return this route
+     */
+    public RouteHandler addConditionalMethod(String method, Function<IRequest, String> versionSource,
+            Function<IRequest, IResponse> handler) {
+        versionSources.put(method.toUpperCase(), versionSource);
+        return addMethod(method, handler);
+    }
+
     public Function<IRequest, IResponse> getHandler(String method) {
         return methods.get(method.toUpperCase());
     }
 
+    public Function<IRequest, String> getVersionSource(String method) {
+        return versionSources.get(method.toUpperCase());
+    }
+
     public boolean supportsMethod(String method) {
         return methods.containsKey(method.toUpperCase());
     }
-} 
\ No newline at end of file
+}
@@ -0,0 +1,78 @@
+package com.shared.function.service;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import com.shared.function.JpaUtil;
+import com.shared.function.entity.Project;
+import com.shared.function.entity.TaskStatus;
+import com.shared.function.entity.User;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityNotFoundException;
+import jakarta.persistence.EntityTransaction;
+import jakarta.persistence.PersistenceException;
+
+/**
+ * Creates a project together with its members and initial statuses as one unit
+ * of work: one EntityManager, one transaction and one flush at commit. Either
+ * everything is written or nothing is.
+ */
+public class ProjectCreationService {
+    /**
+     * Create a project.
+     * The creator and members are validated with a single id query and attached as
+     * references, so no user entity is loaded. Member ids that do not exist are
+     * dropped; the creator is always a member.
+     * @param project The new project, with name and description set.
+     * @param creatorId The ID of the user creating the project.
+     * @param memberIds The IDs of the other members.
+     * @param statuses The initial statuses; their project is set here.
+     * @return The created project, with its ID set.
+     * @throws EntityNotFoundException if the creator does not exist
+     * @throws PersistenceException if the creation fails
+     */
+    public Project createProject(Project project, Integer creatorId, List<Integer> memberIds, List<TaskStatus> statuses) {
+        EntityTransaction tx = null;
+        try (EntityManager em = JpaUtil.getEntityManager()) {
+            tx = em.getTransaction();
+            tx.begin();
+
+            Set<Integer> requestedIds = new HashSet<>(memberIds);
+            requestedIds.add(creatorId);
+            List<Integer> existingIds = em.createQuery("SELECT u.id FROM User u WHERE u.id IN :ids", Integer.class)
+                    .setParameter("ids", requestedIds)
+                    .getResultList();
+            if (!existingIds.contains(creatorId)) {
+                throw new EntityNotFoundException("User with id " + creatorId + " not found");
+            }
+
+            Set<User> members = new HashSet<>();
+            for (Integer id : existingIds) {
+                members.add(em.getReference(User.class, id));
+            }
+            project.setCreatedBy(em.getReference(User.class, creatorId));
+            project.setMembers(members);
+            em.persist(project);
+
+            for (TaskStatus status : statuses) {
+                status.setProject(project);
+                em.persist(status);
+            }
+            project.setTaskStatuses(new HashSet<>(statuses));
+
+            tx.commit();
+            return project;
+        } catch (EntityNotFoundException e) {
+            if (tx != null && tx.isActive()) {
+                tx.rollback();
+            }
+            throw e;
+        } catch (Exception e) {
+            if (tx != null && tx.isActive()) {
+                tx.rollback();
+            }
+            throw new PersistenceException("Error creating project: " + e.getMessage(), e);
+        }
+    }
+}
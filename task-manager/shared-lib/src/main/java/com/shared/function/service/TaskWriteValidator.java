@@ -0,0 +1,163 @@
+package com.shared.function.service;
+
+import java.sql.Array;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+import org.hibernate.Session;
+
+import com.shared.function.JpaUtil;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityTransaction;
+import jakarta.persistence.PersistenceException;
+
+/**
+ * Validates everything a task write refers to in one SQL round trip: that the
+ * user is a member of the project, and which of the requested statuses, tags and
+ * assignees belong to it. Only ids come back; no entity is loaded.
+ */
+public class TaskWriteValidator {
+    private static final String VALIDATION_SQL =
+            "SELECT p.id, " +
+            "       EXISTS (SELECT 1 FROM project_members m WHERE m.project_id = p.id AND m.user_id = ?), " +
+            "       ARRAY(SELECT s.id FROM task_statuses s WHERE s.project_id = p.id AND s.id = ANY(?) ORDER BY s.id), " +
+            "       ARRAY(SELECT g.id FROM project_tags g WHERE g.project_id = p.id AND g.id = ANY(?) ORDER BY g.id), " +
+            "       ARRAY(SELECT m.user_id FROM project_members m WHERE m.project_id = p.id AND m.user_id = ANY(?) ORDER BY m.user_id) " +
+            "FROM p";
+    private static final String FOR_PROJECT_SQL = "WITH p AS (SELECT CAST(? AS integer) AS id) " + VALIDATION_SQL;
+    private static final String FOR_TASK_SQL = "WITH p AS (SELECT project_id AS id FROM tasks WHERE id = ?) " + VALIDATION_SQL;
+
+    /**
+     * What a task write may refer to. The id sets are sorted and hold only the
+     * requested ids that belong to the project.
+     */
+    public static class Result {
+        private final Integer projectId;
+        private final boolean member;
+        private final int[] statusIds;
+        private final int[] tagIds;
+        private final int[] assigneeIds;
+
+        Result(Integer projectId, boolean member, int[] statusIds, int[] tagIds, int[] assigneeIds) {
+            this.projectId = projectId;
+            this.member = member;
+            this.statusIds = statusIds;
+            this.tagIds = tagIds;
+            this.assigneeIds = assigneeIds;
+        }
+
+        public Integer getProjectId() {
+            return projectId;
+        }
+
+        /**
+         * Whether the writing user is a member of the project.
+         */
+        public boolean isMember() {
+            return member;
+        }
+
+        public boolean isValidStatus(int statusId) {
+            return Arrays.binarySearch(statusIds, statusId) >= 0;
+        }
+
+        /**
+         * The given tag ids that belong to the project.
+         */
+        public List<Integer> validTags(Collection<Integer> requested) {
+            return retain(requested, tagIds);
+        }
+
+        /**
+         * The given user ids that are members of the project.
+         */
+        public List<Integer> validAssignees(Collection<Integer> requested) {
+            return retain(requested, assigneeIds);
+        }
+
+        private static List<Integer> retain(Collection<Integer> requested, int[] valid) {
+            return requested.stream().filter(id -> Arrays.binarySearch(valid, id) >= 0).distinct().toList();
+        }
+    }
+
+    /**
+     * Validate a write to a project, e.g. creating tasks in it.
+     * @param projectId The ID of the project.
+     * @param userId The ID of the writing user.
+     * @param statusIds The status IDs the write refers to.
+     * @param tagIds The tag IDs the write refers to.
+     * @param assigneeIds The user IDs the write assigns.
+     * @return the result; a project that does not exist has no members
+     * @throws PersistenceException if the query fails
+     */
+    public Result forProject(Integer projectId, Integer userId, Collection<Integer> statusIds,
+            Collection<Integer> tagIds, Collection<Integer> assigneeIds) {
+        return validate(FOR_PROJECT_SQL, projectId, userId, statusIds, tagIds, assigneeIds);
+    }
+
+    /**
+     * Validate a write to an existing task against the task's project.
+     * @param taskId The ID of the task.
+     * @param userId The ID of the writing user.
+     * @param statusIds The status IDs the write refers to.
+     * @param tagIds The tag IDs the write refers to.
+     * @param assigneeIds The user IDs the write assigns.
+     * @return the result, or null if the task does not exist
+     * @throws PersistenceException if the query fails
+     */
+    public Result forTask(Integer taskId, Integer userId, Collection<Integer> statusIds,
+            Collection<Integer> tagIds, Collection<Integer> assigneeIds) {
+        return validate(FOR_TASK_SQL, taskId, userId, statusIds, tagIds, assigneeIds);
+    }
+
+    private Result validate(String sql, Integer targetId, Integer userId, Collection<Integer> statusIds,
+            Collection<Integer> tagIds, Collection<Integer> assigneeIds) {
+        EntityTransaction tx = null;
+        try (EntityManager em = JpaUtil.getEntityManager()) {
+            tx = em.getTransaction();
+            tx.begin();
+
+            Result result = em.unwrap(Session.class).doReturningWork(connection -> {
+                try (PreparedStatement ps = connection.prepareStatement(sql)) {
+                    ps.setInt(1, targetId);
+                    ps.setInt(2, userId);
+                    ps.setArray(3, toSqlArray(connection, statusIds));
+                    ps.setArray(4, toSqlArray(connection, tagIds));
+                    ps.setArray(5, toSqlArray(connection, assigneeIds));
+                    try (ResultSet rs = ps.executeQuery()) {
+                        if (!rs.next()) {
+                            return null;
+                        }
+                        return new Result(rs.getInt(1), rs.getBoolean(2), toIntArray(rs.getArray(3)),
+                                toIntArray(rs.getArray(4)), toIntArray(rs.getArray(5)));
+                    }
+                }
+            });
+            tx.commit();
+            return result;
+        } catch (Exception e) {
+            if (tx != null && tx.isActive()) {
+                tx.rollback();
+            }
+            throw new PersistenceException("Error validating task write: " + e.getMessage(), e);
+        }
+    }
+
+    private static Array toSqlArray(Connection connection, Collection<Integer> ids) throws SQLException {
+        return connection.createArrayOf("integer", ids.toArray(new Integer[0]));
+    }
+
+    private static int[] toIntArray(Array array) throws SQLException {
+        Integer[] boxed = (Integer[]) array.getArray();
+        int[] ids = new int[boxed.length];
+        for (int i = 0; i < boxed.length; i++) {
+            ids[i] = boxed[i];
+        }
+        return ids;
+    }
+}
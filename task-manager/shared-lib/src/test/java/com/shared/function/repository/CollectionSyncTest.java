@@ -0,0 +1,109 @@
+package com.shared.function.repository;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * CollectionSync on project_members: only the difference is written, and the
+ * rows that stay are not deleted and inserted again (their ctid is unchanged).
+ */
+public class CollectionSyncTest {
+    private static final CollectionSync MEMBERS = new CollectionSync("project_members", "project_id", "user_id");
+
+    private int projectId;
+
+    @BeforeClass
+    public static void startDatabase() throws Exception {
+        TestDatabase.start();
+    }
+
+    @Before
+    public void createProject() throws Exception {
+        projectId = TestDatabase.insert("INSERT INTO projects (name, description, created_by) VALUES ('p', 'd', 1) RETURNING id");
+        TestDatabase.execute("INSERT INTO project_members VALUES (" + projectId + ", 1), (" + projectId + ", 2), ("
+                + projectId + ", 3)");
+    }
+
+    @Test
+    public void syncWritesOnlyTheDifference() throws Exception {
+        Map<Integer, String> before = rowsByUser();
+
+        CollectionSync.Diff diff;
+        try (Connection connection = TestDatabase.connection()) {
+            diff = MEMBERS.sync(connection, projectId, List.of(4, 2, 3, 4));
+        }
+
+        assertArrayEquals(new int[] { 4 }, diff.added);
+        assertArrayEquals(new int[] { 1 }, diff.removed);
+        Map<Integer, String> after = rowsByUser();
+        assertEquals(List.of(2, 3, 4), List.copyOf(after.keySet()));
+        assertEquals(before.get(2), after.get(2));
+        assertEquals(before.get(3), after.get(3));
+    }
+
+    @Test
+    public void syncToTheSameIdsWritesNothing() throws Exception {
+        Map<Integer, String> before = rowsByUser();
+
+        CollectionSync.Diff diff;
+        try (Connection connection = TestDatabase.connection()) {
+            diff = MEMBERS.sync(connection, projectId, List.of(3, 1, 2));
+        }
+
+        assertTrue(diff.isEmpty());
+        assertEquals(before, rowsByUser());
+    }
+
+    @Test
+    public void syncToNoIdsRemovesEveryRow() throws Exception {
+        try (Connection connection = TestDatabase.connection()) {
+            MEMBERS.sync(connection, projectId, List.of());
+        }
+
+        assertTrue(rowsByUser().isEmpty());
+    }
+
+    @Test
+    public void diffWalksBothSortedArrays() {
+        CollectionSync.Diff diff = CollectionSync.diff(new int[] { 1, 3, 5, 7 }, new int[] { 2, 3, 7, 8 });
+
+        assertArrayEquals(new int[] { 2, 8 }, diff.added);
+        assertArrayEquals(new int[] { 1, 5 }, diff.removed);
+    }
+
+    @Test
+    public void toSortedSetDropsNullsAndDuplicates() {
+        assertEquals("[1, 2, 5]", Arrays.toString(CollectionSync.toSortedSet(Arrays.asList(5, null, 2, 1, 2))));
+    }
+
+    /**
+     * The project's rows, as the physical location (ctid) of each member's row.
+     */
+    private Map<Integer, String> rowsByUser() throws Exception {
+        Map<Integer, String> rows = new TreeMap<>();
+        try (Connection connection = TestDatabase.connection();
+                PreparedStatement ps = connection.prepareStatement(
+                        "SELECT user_id, ctid::text FROM project_members WHERE project_id = ?")) {
+            ps.setInt(1, projectId);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    rows.put(rs.getInt(1), rs.getString(2));
+                }
+            }
+        }
+        return rows;
+    }
+}
@@ -0,0 +1,122 @@
+package com.shared.function.repository;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.time.Instant;
+import java.util.Map;
+import java.util.Set;
+import java.util.TimeZone;
+
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.shared.function.JpaUtil;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityNotFoundException;
+import jakarta.persistence.OptimisticLockException;
+
+/**
+ * PartialUpdate through ProjectRepository.patchProject (versioned by updated_at)
+ * and directly on task_statuses (not versioned). The JVM runs in a time zone
+ * other than UTC, so a version that does not survive the round trip through
+ * hibernate.jdbc.time_zone shows up as a conflict.
+ */
+public class PartialUpdateTest {
+    private static TimeZone defaultTimeZone;
+
+    private final ProjectRepository projectRepository = new ProjectRepository();
+    private int projectId;
+
+    @BeforeClass
+    public static void startDatabase() throws Exception {
+        defaultTimeZone = TimeZone.getDefault();
+        TimeZone.setDefault(TimeZone.getTimeZone("America/New_York"));
+        TestDatabase.start();
+    }
+
+    @AfterClass
+    public static void restoreTimeZone() {
+        TimeZone.setDefault(defaultTimeZone);
+    }
+
+    @Before
+    public void createProject() throws Exception {
+        projectId = TestDatabase.insert("INSERT INTO projects (name, description, created_by, updated_at) "
+                + "VALUES ('p', 'd', 1, now() AT TIME ZONE 'UTC') RETURNING id");
+    }
+
+    @Test
+    public void patchWithCurrentVersionUpdatesAndMovesVersion() {
+        Instant version = projectRepository.findById(projectId).getUpdatedAt();
+
+        Instant updatedAt = projectRepository.patchProject(projectId, Map.of("name", "renamed"), version);
+
+        assertTrue(updatedAt.isAfter(version));
+        assertEquals("renamed", projectRepository.findById(projectId).getName());
+        assertEquals(updatedAt, projectRepository.findById(projectId).getUpdatedAt());
+    }
+
+    @Test
+    public void patchWithStaleVersionIsRejected() {
+        Instant stale = projectRepository.findById(projectId).getUpdatedAt();
+        projectRepository.patchProject(projectId, Map.of("name", "first"), stale);
+
+        try {
+            projectRepository.patchProject(projectId, Map.of("name", "second"), stale);
+            fail("expected OptimisticLockException");
+        } catch (OptimisticLockException e) {
+            // expected
+        }
+        assertEquals("first", projectRepository.findById(projectId).getName());
+    }
+
+    @Test(expected = EntityNotFoundException.class)
+    public void patchOfMissingRowIsNotFound() {
+        projectRepository.patchProject(Integer.MAX_VALUE, Map.of("name", "x"), Instant.now());
+    }
+
+    @Test
+    public void emptyPatchOnlyMovesVersion() {
+        Instant version = projectRepository.findById(projectId).getUpdatedAt();
+
+        Instant updatedAt = projectRepository.patchProject(projectId, Map.of(), version);
+
+        assertTrue(updatedAt.isAfter(version));
+        assertEquals("p", projectRepository.findById(projectId).getName());
+        assertEquals("d", projectRepository.findById(projectId).getDescription());
+    }
+
+    @Test
+    public void emptyPatchOfUnversionedRowOnlyReads() throws Exception {
+        int statusId = TestDatabase.insert("INSERT INTO task_statuses (project_id, status_name, status_order, color) "
+                + "VALUES (" + projectId + ", 's', 1, '#000000') RETURNING id");
+        PartialUpdate update = new PartialUpdate("task_statuses", "Status", Set.of("color"), false, "project_id");
+
+        try (EntityManager em = JpaUtil.getEntityManager()) {
+            Object[] result = update.apply(em, statusId, Map.of(), null);
+
+            assertEquals(projectId, ((Number) result[0]).intValue());
+            assertNull(result[1]);
+        }
+    }
+
+    @Test(expected = EntityNotFoundException.class)
+    public void emptyPatchOfMissingUnversionedRowIsNotFound() {
+        PartialUpdate update = new PartialUpdate("task_statuses", "Status", Set.of("color"), false, "project_id");
+
+        try (EntityManager em = JpaUtil.getEntityManager()) {
+            update.apply(em, Integer.MAX_VALUE, Map.of(), null);
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void patchOfOtherColumnsIsRejected() {
+        projectRepository.patchProject(projectId, Map.of("created_by", 2), null);
+    }
+}
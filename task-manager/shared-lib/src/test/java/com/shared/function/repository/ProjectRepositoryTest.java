@@ -0,0 +1,119 @@
+package com.shared.function.repository;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import org.hibernate.Hibernate;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.shared.function.JpaUtil;
+import com.shared.function.DTL.ProjectDetails;
+import com.shared.function.entity.Project;
+import com.shared.function.entity.Task;
+
+import jakarta.persistence.EntityManager;
+
+/**
+ * ProjectRepository against an embedded Postgres: statement counts, so a change
+ * that brings back N+1 loading fails here instead of in production, and the
+ * details rendered in SQL against the ones built from the entities.
+ */
+public class ProjectRepositoryTest {
+    private static Statistics statistics;
+
+    private final ProjectRepository projectRepository = new ProjectRepository();
+    // configured like BaseHandler's
+    private final ObjectMapper objectMapper = new ObjectMapper()
+            .registerModule(new JavaTimeModule())
+            .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+
+    @BeforeClass
+    public static void startDatabase() throws Exception {
+        TestDatabase.start();
+        try (EntityManager em = JpaUtil.getEntityManager()) {
+            statistics = em.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+        }
+        statistics.setStatisticsEnabled(true);
+    }
+
+    @Before
+    public void resetStatistics() {
+        statistics.clear();
+    }
+
+    @Test
+    public void getProjectDetailsRunsFiveStatements() {
+        Project project = projectRepository.getProjectDetails(1);
+
+        assertEquals(5, statistics.getPrepareStatementCount());
+        assertEquals(4, project.getMembers().size());
+        assertEquals(3, project.getTags().size());
+        assertEquals(2, project.getTaskStatuses().size());
+        assertEquals(30, project.getTasks().size());
+        for (Task task : project.getTasks()) {
+            assertTrue(Hibernate.isInitialized(task.getTags()));
+            assertTrue(Hibernate.isInitialized(task.getAssignedTo()));
+            assertTrue(Hibernate.isInitialized(task.getCreatedBy()));
+        }
+    }
+
+    @Test
+    public void getProjectDetailsStatementsDoNotGrowWithTasks() {
+        projectRepository.getProjectDetails(1);
+        long withTasks = statistics.getPrepareStatementCount();
+        statistics.clear();
+
+        projectRepository.getProjectDetails(2);
+
+        assertEquals(withTasks, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    public void getProjectDetailsOfMissingProjectReturnsNull() {
+        assertNull(projectRepository.getProjectDetails(999));
+    }
+
+    @Test
+    public void getProjectDetailsJsonMatchesOrmDetails() throws Exception {
+        for (int id : new int[] { 1, 2 }) {
+            JsonNode fromSql = objectMapper.readTree(projectRepository.getProjectDetailsJson(id));
+            JsonNode fromOrm = objectMapper.valueToTree(new ProjectDetails(projectRepository.getProjectDetails(id)));
+
+            assertEquals(normalize(fromOrm), normalize(fromSql));
+        }
+    }
+
+    /**
+     * Put what the two paths order differently in one order: tasks by id, and
+     * the id lists, which come from sets.
+     */
+    private static JsonNode normalize(JsonNode node) {
+        if (node.isObject()) {
+            ObjectNode object = (ObjectNode) node;
+            object.fieldNames().forEachRemaining(name -> object.set(name, normalize(object.get(name))));
+        } else if (node.isArray()) {
+            List<JsonNode> elements = new ArrayList<>();
+            node.forEach(element -> elements.add(normalize(element)));
+            elements.sort(Comparator.comparingInt(element -> element.isObject() ? element.path("id").asInt() : element.asInt()));
+            ArrayNode array = (ArrayNode) node;
+            array.removeAll();
+            array.addAll(elements);
+        }
+        return node;
+    }
+}
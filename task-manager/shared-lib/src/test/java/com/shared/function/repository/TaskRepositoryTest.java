@@ -0,0 +1,112 @@
+package com.shared.function.repository;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.shared.function.entity.Task;
+
+/**
+ * TaskRepository.createTasks reserves ids from tasks_id_seq in blocks of 50,
+ * the same way the entity's pooled-lo generator does for createTask, so bulk
+ * and single inserts can be mixed without handing out an id twice.
+ */
+public class TaskRepositoryTest {
+    private final TaskRepository taskRepository = new TaskRepository();
+    private int projectId;
+    private int statusId;
+    private int tagId;
+
+    @BeforeClass
+    public static void startDatabase() throws Exception {
+        TestDatabase.start();
+    }
+
+    @Before
+    public void createProject() throws Exception {
+        projectId = TestDatabase.insert("INSERT INTO projects (name, description, created_by) VALUES ('p', 'd', 1) RETURNING id");
+        statusId = TestDatabase.insert("INSERT INTO task_statuses (project_id, status_name, status_order, color) "
+                + "VALUES (" + projectId + ", 's', 1, '#000000') RETURNING id");
+        tagId = TestDatabase.insert("INSERT INTO project_tags (project_id, tag_name, color) "
+                + "VALUES (" + projectId + ", 't', '#000000') RETURNING id");
+    }
+
+    @Test
+    public void bulkAndSingleInsertsGetDistinctIds() throws Exception {
+        List<Task> created = new ArrayList<>(taskRepository.createTasks(newTasks(120)));
+        created.add(taskRepository.createTask(newTask("single")));
+        created.addAll(taskRepository.createTasks(newTasks(60)));
+
+        Set<Integer> ids = new HashSet<>();
+        for (Task task : created) {
+            assertNotNull(task.getId());
+            ids.add(task.getId());
+        }
+        assertEquals(181, ids.size());
+        assertEquals(ids, taskIdsOfProject());
+        assertEquals(181, countRows("SELECT count(*) FROM task_tags tt JOIN tasks t ON t.id = tt.task_id WHERE t.project_id = ?"));
+        assertEquals(362, countRows("SELECT count(*) FROM task_assignments ta JOIN tasks t ON t.id = ta.task_id WHERE t.project_id = ?"));
+    }
+
+    @Test
+    public void bulkInsertOfAPartialBlockFillsItInOrder() throws Exception {
+        List<Task> created = taskRepository.createTasks(newTasks(7));
+
+        for (int i = 1; i < created.size(); i++) {
+            assertEquals(created.get(0).getId() + i, (int) created.get(i).getId());
+        }
+        assertEquals(7, taskIdsOfProject().size());
+    }
+
+    private List<Task> newTasks(int count) {
+        List<Task> tasks = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            tasks.add(newTask("bulk " + i));
+        }
+        return tasks;
+    }
+
+    private Task newTask(String name) {
+        Task task = new Task();
+        task.setTaskName(name);
+        task.setContent("c");
+        task.setPriority(1);
+        return taskRepository.attachReferences(task, projectId, 1, statusId, List.of(tagId), List.of(1, 2));
+    }
+
+    private Set<Integer> taskIdsOfProject() throws Exception {
+        Set<Integer> ids = new HashSet<>();
+        try (Connection connection = TestDatabase.connection();
+                PreparedStatement ps = connection.prepareStatement("SELECT id FROM tasks WHERE project_id = ?")) {
+            ps.setInt(1, projectId);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    ids.add(rs.getInt(1));
+                }
+            }
+        }
+        return ids;
+    }
+
+    private int countRows(String sql) throws Exception {
+        try (Connection connection = TestDatabase.connection();
+                PreparedStatement ps = connection.prepareStatement(sql)) {
+            ps.setInt(1, projectId);
+            try (ResultSet rs = ps.executeQuery()) {
+                rs.next();
+                return rs.getInt(1);
+            }
+        }
+    }
+}
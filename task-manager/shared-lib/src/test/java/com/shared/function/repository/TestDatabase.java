@@ -0,0 +1,85 @@
+package com.shared.function.repository;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import com.shared.function.JpaUtil;
+
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+
+/**
+ * One embedded Postgres with the schema and seed data, shared by every
+ * repository test of the run. JpaUtil connects once per JVM, so the database
+ * is started by the first test class and closed when the JVM exits.
+ */
+final class TestDatabase {
+    private static EmbeddedPostgres postgres;
+
+    private TestDatabase() {
+    }
+
+    static synchronized void start() throws Exception {
+        if (postgres != null) {
+            return;
+        }
+        postgres = EmbeddedPostgres.start();
+        try (Connection connection = connection();
+                Statement statement = connection.createStatement()) {
+            statement.execute(resource("/db/schema.sql"));
+            statement.execute(resource("/db/seed.sql"));
+        }
+
+        // JpaUtil reads its connection string from the secrets directory
+        Path secrets = Files.createTempDirectory("secrets");
+        Files.writeString(secrets.resolve("db-connection-string"), postgres.getJdbcUrl("postgres", "postgres"));
+        System.setProperty("secrets.dir", secrets.toString());
+
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            JpaUtil.shutdown();
+            try {
+                postgres.close();
+            } catch (IOException e) {
+                System.err.println("Closing the test database failed: " + e.getMessage());
+            }
+        }));
+    }
+
+    /**
+     * A plain JDBC connection, outside JpaUtil, for setting up and checking rows.
+     */
+    static Connection connection() throws SQLException {
+        return postgres.getPostgresDatabase().getConnection();
+    }
+
+    /**
+     * Run an INSERT ... RETURNING id and return the id.
+     */
+    static int insert(String sql) throws SQLException {
+        try (Connection connection = connection();
+                Statement statement = connection.createStatement();
+                ResultSet rs = statement.executeQuery(sql)) {
+            rs.next();
+            return rs.getInt(1);
+        }
+    }
+
+    static void execute(String sql) throws SQLException {
+        try (Connection connection = connection();
+                Statement statement = connection.createStatement()) {
+            statement.execute(sql);
+        }
+    }
+
+    private static String resource(String name) throws IOException {
+        try (InputStream in = TestDatabase.class.getResourceAsStream(name)) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+}
@@ -0,0 +1,11 @@
+-- The tables of postgredSQL.md
+CREATE TABLE users (id SERIAL, email TEXT UNIQUE NOT NULL, user_name TEXT NOT NULL, password TEXT NOT NULL, created_at TIMESTAMP DEFAULT NOW(), updated_at TIMESTAMP DEFAULT NOW(), PRIMARY KEY (id));
+CREATE TABLE projects (id SERIAL, name VARCHAR(255) NOT NULL, description TEXT, created_by SERIAL REFERENCES users(id), created_at TIMESTAMP DEFAULT NOW(), updated_at TIMESTAMP DEFAULT NOW(), PRIMARY KEY (id));
+CREATE TABLE project_members (project_id INTEGER REFERENCES projects(id) ON DELETE CASCADE, user_id INTEGER REFERENCES users(id) ON DELETE CASCADE, PRIMARY KEY (project_id, user_id));
+CREATE TABLE task_statuses (id SERIAL, project_id INTEGER REFERENCES projects(id) ON DELETE CASCADE, status_name VARCHAR(50) NOT NULL, status_order INTEGER NOT NULL, description TEXT, color VARCHAR(7), created_at TIMESTAMP DEFAULT NOW(), PRIMARY KEY (id), UNIQUE(project_id, status_name));
+CREATE TABLE project_tags (id SERIAL, project_id INTEGER REFERENCES projects(id) ON DELETE CASCADE, tag_name VARCHAR(50) NOT NULL, color VARCHAR(7), created_at TIMESTAMP DEFAULT NOW(), PRIMARY KEY (id), UNIQUE(project_id, tag_name));
+CREATE TABLE tasks (id SERIAL, project_id SERIAL REFERENCES projects(id) ON DELETE CASCADE, created_by SERIAL REFERENCES users(id), task_name VARCHAR(255) NOT NULL, content TEXT, start_time TIMESTAMP NOT NULL DEFAULT NOW(), end_time TIMESTAMP NOT NULL DEFAULT NOW(), created_at TIMESTAMP DEFAULT NOW(), updated_at TIMESTAMP DEFAULT NOW(), status_id INTEGER REFERENCES task_statuses(id) ON DELETE RESTRICT, priority INTEGER, PRIMARY KEY (id));
+CREATE TABLE task_assignments (task_id INTEGER REFERENCES tasks(id) ON DELETE CASCADE, user_id INTEGER REFERENCES users(id) ON DELETE CASCADE, PRIMARY KEY (task_id, user_id));
+CREATE TABLE task_tags (task_id INTEGER REFERENCES tasks(id) ON DELETE CASCADE, tag_id INTEGER REFERENCES project_tags(id) ON DELETE CASCADE, PRIMARY KEY (task_id, tag_id));
+CREATE INDEX idx_tasks_project_id ON tasks(project_id);
+CREATE INDEX idx_project_members_user_id ON project_members(user_id);
@@ -0,0 +1,19 @@
+-- Two projects; project 1 has 4 members, 2 statuses, 3 tags and 30 tasks, each with tags and assignees
+INSERT INTO users (email,user_name,password) SELECT 'u'||g||'@x','user'||g,'pw' FROM generate_series(1,5) g;
+-- project 1's description has characters JSON must escape
+INSERT INTO projects (name,description,created_by) VALUES ('P1',E'd\x1f"q"\\\né',1),('P2','d',2);
+INSERT INTO project_members SELECT 1,g FROM generate_series(1,4) g;
+INSERT INTO project_members VALUES (2,2),(2,5);
+INSERT INTO task_statuses (project_id,status_name,status_order,description,color) VALUES (1,'To Do',1,'To Do','#EB7A34'),(1,'Done',3,'Done','#58E701'),(2,'To Do',1,'x','#EB7A34');
+INSERT INTO project_tags (project_id,tag_name,color) VALUES (1,'a','#111111'),(1,'b','#222222'),(1,'c','#333333');
+INSERT INTO tasks (project_id,created_by,task_name,content,status_id,priority) SELECT 1,(g%4)+1,'t'||g,'c',1+(g%2),1 FROM generate_series(1,30) g;
+INSERT INTO task_tags SELECT g,1+(g%3) FROM generate_series(1,30) g;
+INSERT INTO task_tags SELECT g,1+((g+1)%3) FROM generate_series(1,30,2) g;
+INSERT INTO task_assignments SELECT g,1+(g%4) FROM generate_series(1,30) g;
+INSERT INTO task_assignments SELECT g,1+((g+1)%4) FROM generate_series(1,30,3) g;
+-- From here on ids step by the entities' allocation size
+ALTER SEQUENCE users_id_seq INCREMENT BY 50;
+ALTER SEQUENCE projects_id_seq INCREMENT BY 50;
+ALTER SEQUENCE tasks_id_seq INCREMENT BY 50;
+ALTER SEQUENCE task_statuses_id_seq INCREMENT BY 50;
+ALTER SEQUENCE project_tags_id_seq INCREMENT BY 50;
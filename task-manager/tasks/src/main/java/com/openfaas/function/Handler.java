@@ -1,13 +1,15 @@
 package com.openfaas.function;
 
+import java.io.IOException;
 import java.time.Instant;
 import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Set;
 import java.util.Spliterators;
-import java.util.stream.Collectors;
 import java.util.stream.StreamSupport;
 import java.util.List;
 
@@ -15,53 +17,56 @@ import com.openfaas.model.IResponse;
 import com.openfaas.model.IRequest;
 import com.openfaas.model.Response;
 import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.MappingIterator;
+import jakarta.persistence.OptimisticLockException;
 import com.shared.function.JwtUtil;
-import com.shared.function.config.ProjectFetchConfig;
 import com.shared.function.entity.*;
 import com.shared.function.repository.*;
 import com.shared.function.routing.BaseHandler;
 import com.shared.function.routing.RouteHandler;
+import com.shared.function.service.TaskWriteValidator;
 
 // import com.shared.function.*; // shared lib
 
 public class Handler extends BaseHandler {
+    private static final int MAX_BULK_TASKS = 10000;
+
     private final TaskRepository taskRepository = new TaskRepository();
     private final ProjectRepository projectRepository = new ProjectRepository();
+    private final TaskWriteValidator taskWriteValidator = new TaskWriteValidator();
 
     @Override
     public Map<String, RouteHandler> initializeRouteHandlers() {
         Map<String, RouteHandler> handlers = new HashMap<>();
+        // Each write runs in one unit of work: one EntityManager, connection and commit per request
         handlers.put("/", new RouteHandler()
-                .addMethod("POST", req -> handleCreateTask(req, new Response(), req.getHeader("Authorization").substring(7)))
-                .addMethod("PUT", req -> handleUpdateTask(req, new Response(), req.getHeader("Authorization").substring(7)))
-                .addMethod("DELETE", req -> handleDeleteTask(req, new Response(), req.getHeader("Authorization").substring(7))));
+                .addMethod("POST", req -> inUnitOfWork(() -> handleCreateTask(req, new Response(), req.getHeader("Authorization").substring(7))))
+                .addMethod("PUT", req -> inUnitOfWork(() -> handleUpdateTask(req, new Response(), req.getHeader("Authorization").substring(7))))
+                .addMethod("PATCH", req -> inUnitOfWork(() -> handleUpdateTask(req, new Response(), req.getHeader("Authorization").substring(7))))
+                .addMethod("DELETE", req -> inUnitOfWork(() -> handleDeleteTask(req, new Response(), req.getHeader("Authorization").substring(7)))));
+        handlers.put("/bulk", new RouteHandler()
+                .addMethod("POST", req -> inUnitOfWork(() -> handleBulkCreateTasks(req, new Response(), req.getHeader("Authorization").substring(7)))));
         return handlers;
     }
 
     @Override
     public String determineRoute(Map<String, String> path) {
+        if (path != null && path.containsKey("bulk")) {
+            return "/bulk";
+        }
         return "/";
     }
 
-    private IResponse handleCreateTask(IRequest req, Response res, String token) {
+private IResponse handleCreateTask(IRequest req, Response res, String token) {
         try {
             Integer projectId = validateQueryParam(req, res, "pId", Integer.class);
             if (projectId == null) {
                 return res;
             }
 
-            // get user id from token
-            User user;
-            try{
-                Integer userId = Integer.parseInt(JwtUtil.getUserIdFromToken(token));
-                user = projectRepository.findMemberById(userId, projectId);
-                if (user == null) {
-                    res.setStatusCode(401);
-                    res.setBody(toJson(Map.of(
-                            "error", "Unauthorized",
-                            "message", "User is not a member of the project")));
-                    return res;
-                }
+            Integer userId;
+            try {
+                userId = Integer.parseInt(JwtUtil.getUserIdFromToken(token));
             } catch (NumberFormatException e) {
                 res.setStatusCode(401);
                 res.setBody(toJson(Map.of(
@@ -70,22 +75,6 @@ public class Handler extends BaseHandler {
                 return res;
             }
 
-            ProjectFetchConfig projectFetchConfig = new ProjectFetchConfig();
-            projectFetchConfig.setFetchMembers(true);
-            projectFetchConfig.setFetchTags(true);
-            projectFetchConfig.setFetchTaskStatuses(true);
-            projectFetchConfig.setFetchTasks(false);
-            projectFetchConfig.setFetchCreatedBy(false);
-
-            Project project = projectRepository.findById(projectId, projectFetchConfig);
-            if (project == null) {
-                res.setStatusCode(400);
-                res.setBody(toJson(Map.of(
-                        "error", "Bad Request",
-                        "message", "Invalid project ID")));
-                return res;
-            }
-
             JsonNode rootNode = objectMapper.readTree(req.getBody());
 
             String taskName = rootNode.path("name").asText();
@@ -117,14 +106,20 @@ public class Handler extends BaseHandler {
                 return res;
             }
 
-            JsonNode tagsNode = rootNode.path("tag_ids");
-            JsonNode assignedToNode = rootNode.path("assigned_to");
+            List<Integer> tagIds = idList(rootNode.path("tag_ids"));
+            List<Integer> assignedUserIds = idList(rootNode.path("assigned_to"));
 
-            // validate status
-            TaskStatus status;
-            Set<TaskStatus> statuses = project.getTaskStatuses();
-            status = statuses.stream().filter(s -> s.getId() == statusId).findFirst().orElse(null);
-            if (status == null) {
+            // membership, status, tags and assignees are checked in one round trip
+            TaskWriteValidator.Result validation = taskWriteValidator.forProject(projectId, userId,
+                    List.of(statusId), tagIds, assignedUserIds);
+            if (!validation.isMember()) {
+                res.setStatusCode(401);
+                res.setBody(toJson(Map.of(
+                        "error", "Unauthorized",
+                        "message", "User is not a member of the project")));
+                return res;
+            }
+            if (!validation.isValidStatus(statusId)) {
                 res.setStatusCode(400);
                 res.setBody(toJson(Map.of(
                         "error", "Bad Request",
@@ -132,44 +127,18 @@ public class Handler extends BaseHandler {
                 return res;
             }
 
-            // filter tags if not a tag of the project
-            Set<ProjectTag> tags = new HashSet<>();
-            if (tagsNode.isArray()) {
-                List<Integer> tagIds = StreamSupport
-                        .stream(Spliterators.spliteratorUnknownSize(tagsNode.iterator(), 0), false)
-                        .map(JsonNode::asInt)
-                        .filter(id -> id > 0)
-                        .toList();
-                tags = projectRepository.findAllTagsById(tagIds, projectId)
-                        .stream()
-                        .collect(Collectors.toSet());
-            }
-
-            // filter assigned users if not a member of the project
-            Set<User> assignedUsers = new HashSet<>();
-            if (assignedToNode.isArray()) {
-                List<Integer> assignedUserIds = StreamSupport
-                        .stream(Spliterators.spliteratorUnknownSize(assignedToNode.iterator(), 0), false)
-                        .map(JsonNode::asInt)
-                        .filter(id -> id > 0)
-                        .toList();
-                assignedUsers = projectRepository.findAllUsersById(assignedUserIds, projectId).stream()
-                        .collect(Collectors.toSet());
-            }
-
+            // tags and assignees outside the project are dropped
             Task newTask = new Task();
-            newTask.setProject(project);
             newTask.setTaskName(taskName);
             newTask.setContent(content);
             newTask.setStartTime(startTime);
             newTask.setEndTime(endTime);
             newTask.setPriority(priority);
-            newTask.setStatus(status);
-            newTask.setTags(tags);
-            newTask.setAssignedTo(assignedUsers);
-            newTask.setCreatedBy(user);
+            taskRepository.attachReferences(newTask, projectId, userId, statusId,
+                    validation.validTags(tagIds), validation.validAssignees(assignedUserIds));
 
             Task createdTask = taskRepository.createTask(newTask);
+            invalidateProject(projectId);
 
             res.setStatusCode(201);
             res.setBody(toJson(Map.of(
@@ -185,35 +154,167 @@ public class Handler extends BaseHandler {
         return res;
     }
 
-    private IResponse handleUpdateTask(IRequest req, Response res, String token) {
+    /**
+     * The positive ids of a JSON array, or an empty list if the node is not an array.
+     */
+    private List<Integer> idList(JsonNode node) {
+        if (!node.isArray()) {
+            return List.of();
+        }
+        return StreamSupport
+                .stream(Spliterators.spliteratorUnknownSize(node.iterator(), 0), false)
+                .map(JsonNode::asInt)
+                .filter(id -> id > 0)
+                .toList();
+    }
+
+    /**
+     * Create many tasks of one project in a single transaction.
+     * The body is a JSON array of tasks or NDJSON, one task per line, each with the
+     * fields of a single create. The whole set is validated before anything is
+     * written; if any task is invalid, none is created and every error is reported.
+     */
+    private IResponse handleBulkCreateTasks(IRequest req, Response res, String token) {
+        // e.g. openfaas -> http://<ip_addr>:<port>/function/tasks/bulk?pId=1
         try {
-            Integer taskId = validateQueryParam(req, res, "tId", Integer.class);
-            if (taskId == null) {
+            Integer projectId = validateQueryParam(req, res, "pId", Integer.class);
+            if (projectId == null) {
                 return res;
             }
 
-            Task existingTask = taskRepository.findById(taskId);
-            if (existingTask == null) {
-                res.setStatusCode(404);
+            Integer userId;
+            try {
+                userId = Integer.parseInt(JwtUtil.getUserIdFromToken(token));
+            } catch (NumberFormatException e) {
+                res.setStatusCode(401);
+                res.setBody(toJson(Map.of(
+                        "error", "Unauthorized",
+                        "message", "Invalid token")));
+                return res;
+            }
+
+            // Parse every task up front; a root array and NDJSON both read as a sequence
+            List<JsonNode> nodes = new ArrayList<>();
+            try (MappingIterator<JsonNode> it = objectMapper.readerFor(JsonNode.class).readValues(req.getBody())) {
+                while (it.hasNextValue()) {
+                    nodes.add(it.nextValue());
+                }
+            } catch (IOException | RuntimeException e) {
+                res.setStatusCode(400);
                 res.setBody(toJson(Map.of(
                         "error", "Bad Request",
-                        "message", "Invalid task ID")));
+                        "message", "Body must be a JSON array or NDJSON of tasks")));
+                return res;
+            }
+            if (nodes.isEmpty() || nodes.size() > MAX_BULK_TASKS) {
+                res.setStatusCode(400);
+                res.setBody(toJson(Map.of(
+                        "error", "Bad Request",
+                        "message", "Between 1 and " + MAX_BULK_TASKS + " tasks are required")));
                 return res;
             }
-            Integer projectId = existingTask.getProject().getId();
 
-            // get user id from token
-            User user;
-            try{
-                Integer userId = Integer.parseInt(JwtUtil.getUserIdFromToken(token));
-                user = projectRepository.findMemberById(userId, projectId);
-                if (user == null) {
-                    res.setStatusCode(401);
-                    res.setBody(toJson(Map.of(
-                            "error", "Unauthorized",
-                            "message", "User is not a member of the project")));
-                    return res;
+            // One query validates every status, tag and assignee of the whole set
+            Set<Integer> statusIds = new HashSet<>();
+            Set<Integer> tagIds = new HashSet<>();
+            Set<Integer> assignedUserIds = new HashSet<>();
+            for (JsonNode node : nodes) {
+                statusIds.add(node.path("status_id").asInt());
+                tagIds.addAll(idList(node.path("tag_ids")));
+                assignedUserIds.addAll(idList(node.path("assigned_to")));
+            }
+            TaskWriteValidator.Result validation = taskWriteValidator.forProject(projectId, userId,
+                    statusIds, tagIds, assignedUserIds);
+            if (!validation.isMember()) {
+                res.setStatusCode(401);
+                res.setBody(toJson(Map.of(
+                        "error", "Unauthorized",
+                        "message", "User is not a member of the project")));
+                return res;
+            }
+
+            List<Task> tasks = new ArrayList<>();
+            List<Map<String, Object>> errors = new ArrayList<>();
+            for (int i = 0; i < nodes.size(); i++) {
+                try {
+                    tasks.add(parseBulkTask(nodes.get(i), projectId, userId, validation));
+                } catch (IllegalArgumentException e) {
+                    errors.add(Map.of("index", i, "message", e.getMessage()));
                 }
+            }
+            if (!errors.isEmpty()) {
+                res.setStatusCode(400);
+                res.setBody(toJson(Map.of(
+                        "error", "Bad Request",
+                        "message", "Invalid tasks",
+                        "details", errors)));
+                return res;
+            }
+
+            taskRepository.createTasks(tasks);
+            invalidateProject(projectId);
+
+            res.setStatusCode(201);
+            res.setBody(toJson(Map.of(
+                    "success", true,
+                    "message", "Tasks created successfully",
+                    "ids", tasks.stream().map(Task::getId).toList())));
+        } catch (Exception e) {
+            res.setStatusCode(500);
+            res.setBody(toJson(Map.of(
+                    "success", false,
+                    "error", "Failed to create tasks: " + e.getMessage())));
+        }
+        return res;
+    }
+
+    /**
+     * Build one task of a bulk create with the rules of a single create: required
+     * fields must be present and the status must belong to the project, while tags
+     * and assignees outside the project are dropped.
+     * @throws IllegalArgumentException describing the first invalid field
+     */
+    private Task parseBulkTask(JsonNode node, Integer projectId, Integer creatorId, TaskWriteValidator.Result validation) {
+        String taskName = node.path("name").asText();
+        String content = node.path("content").asText();
+        int priority = node.path("priority").asInt();
+        Instant startTime;
+        Instant endTime;
+        try {
+            startTime = Instant.parse(node.path("start_time").asText());
+            endTime = Instant.parse(node.path("end_time").asText());
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Invalid time format for start_time or end_time");
+        }
+        if (taskName.isEmpty() || content.isEmpty() || priority <= 0) {
+            throw new IllegalArgumentException("Missing required fields");
+        }
+        int statusId = node.path("status_id").asInt();
+        if (!validation.isValidStatus(statusId)) {
+            throw new IllegalArgumentException("Invalid status ID");
+        }
+
+        Task task = new Task();
+        task.setTaskName(taskName);
+        task.setContent(content);
+        task.setStartTime(startTime);
+        task.setEndTime(endTime);
+        task.setPriority(priority);
+        return taskRepository.attachReferences(task, projectId, creatorId, statusId,
+                validation.validTags(idList(node.path("tag_ids"))),
+                validation.validAssignees(idList(node.path("assigned_to"))));
+    }
+
+    private IResponse handleUpdateTask(IRequest req, Response res, String token) {
+        try {
+            Integer taskId = validateQueryParam(req, res, "tId", Integer.class);
+            if (taskId == null) {
+                return res;
+            }
+
+            Integer userId;
+            try {
+                userId = Integer.parseInt(JwtUtil.getUserIdFromToken(token));
             } catch (NumberFormatException e) {
                 res.setStatusCode(401);
                 res.setBody(toJson(Map.of(
@@ -222,17 +323,43 @@ public class Handler extends BaseHandler {
                 return res;
             }
 
-            // general metadata of a task
             JsonNode rootNode = objectMapper.readTree(req.getBody());
+            Integer statusId = rootNode.path("status_id").asInt();
+            boolean updateTags = rootNode.path("tag_ids").isArray();
+            boolean updateAssignees = rootNode.path("assigned_to").isArray();
+            List<Integer> tagIds = idList(rootNode.path("tag_ids"));
+            List<Integer> assignedUserIds = idList(rootNode.path("assigned_to"));
+
+            // task, membership, status, tags and assignees are checked in one round trip
+            TaskWriteValidator.Result validation = taskWriteValidator.forTask(taskId, userId,
+                    statusId > 0 ? List.of(statusId) : List.of(), tagIds, assignedUserIds);
+            if (validation == null) {
+                res.setStatusCode(404);
+                res.setBody(toJson(Map.of(
+                        "error", "Bad Request",
+                        "message", "Invalid task ID")));
+                return res;
+            }
+            Integer projectId = validation.getProjectId();
+            if (!validation.isMember()) {
+                res.setStatusCode(401);
+                res.setBody(toJson(Map.of(
+                        "error", "Unauthorized",
+                        "message", "User is not a member of the project")));
+                return res;
+            }
+
+            // Collect only the fields that were sent; the task itself is never loaded
+            Map<String, Object> changes = new LinkedHashMap<>();
             if (rootNode.has("name") && !rootNode.path("name").asText().isEmpty()) {
-                existingTask.setTaskName(rootNode.path("name").asText());
+                changes.put("task_name", rootNode.path("name").asText());
             }
             if (rootNode.has("content") && !rootNode.path("content").asText().isEmpty()) {
-                existingTask.setContent(rootNode.path("content").asText());
+                changes.put("content", rootNode.path("content").asText());
             }
             if (rootNode.has("start_time") && !rootNode.path("start_time").asText().isEmpty()) {
                 try {
-                    existingTask.setStartTime(Instant.parse(rootNode.path("start_time").asText()));
+                    changes.put("start_time", Instant.parse(rootNode.path("start_time").asText()));
                 } catch (DateTimeParseException e) {
                     res.setStatusCode(400);
                     res.setBody(toJson(Map.of(
@@ -243,7 +370,7 @@ public class Handler extends BaseHandler {
             }
             if (rootNode.has("end_time") && !rootNode.path("end_time").asText().isEmpty()) {
                 try {
-                    existingTask.setEndTime(Instant.parse(rootNode.path("end_time").asText()));
+                    changes.put("end_time", Instant.parse(rootNode.path("end_time").asText()));
                 } catch (DateTimeParseException e) {
                     res.setStatusCode(400);
                     res.setBody(toJson(Map.of(
@@ -253,60 +380,55 @@ public class Handler extends BaseHandler {
                 }
             }
             if (rootNode.has("priority") && rootNode.path("priority").asInt() > 0) {
-                existingTask.setPriority(rootNode.path("priority").asInt());
+                changes.put("priority", rootNode.path("priority").asInt());
             }
 
-            // JsonNode tagsNode = rootNode.path("tag_ids");
-            // JsonNode assignedToNode = rootNode.path("assigned_to");
-            
             // validate status
-            Integer statusId = rootNode.path("status_id").asInt();
             if (statusId > 0) {
-                TaskStatus status = projectRepository.findStatusById(statusId, projectId);
-                if (status == null) {
+                if (!validation.isValidStatus(statusId)) {
                     res.setStatusCode(400);
                     res.setBody(toJson(Map.of(
                             "error", "Bad Request",
                             "message", "Invalid status ID")));
                     return res;
                 }
-                existingTask.setStatus(status);
+                changes.put("status_id", statusId);
+            }
+
+            Instant expectedVersion;
+            try {
+                expectedVersion = expectedVersion(rootNode);
+            } catch (DateTimeParseException e) {
+                res.setStatusCode(400);
+                res.setBody(toJson(Map.of(
+                        "error", "Bad Request",
+                        "message", "Invalid updated_at format")));
+                return res;
             }
 
-            // filter tags if not a tag of the project
-            if (rootNode.has("tag_ids") && rootNode.path("tag_ids").isArray()){
-                Set<ProjectTag> tags = new HashSet<>();
-                List<Integer> tagIds = StreamSupport
-                    .stream(Spliterators.spliteratorUnknownSize(rootNode.path("tag_ids").iterator(), 0), false)
-                    .map(JsonNode::asInt)
-                    .filter(id -> id > 0)
-                    .toList();
-                tags = projectRepository.findAllTagsById(tagIds, projectId)
-                    .stream()
-                    .collect(Collectors.toSet());
-                existingTask.setTags(tags);
+            Instant updatedAt;
+            try {
+                updatedAt = taskRepository.patchTask(taskId, changes, expectedVersion);
+            } catch (OptimisticLockException e) {
+                return versionConflict(res, e.getMessage());
             }
 
-            // filter assigned users if not a member of the project
-            if (rootNode.has("assigned_to") && rootNode.path("assigned_to").isArray()){
-                Set<User> assignedUsers = new HashSet<>();
-                List<Integer> assignedUserIds = StreamSupport
-                        .stream(Spliterators.spliteratorUnknownSize(rootNode.path("assigned_to").iterator(), 0), false)
-                        .map(JsonNode::asInt)
-                        .filter(id -> id > 0)
-                        .toList();
-                assignedUsers = projectRepository.findAllUsersById(assignedUserIds, projectId).stream()
-                        .collect(Collectors.toSet());
-                existingTask.setAssignedTo(assignedUsers);
+            // tags and assignees outside the project are dropped, only changed rows are written
+            if (updateTags) {
+                taskRepository.updateTaskTags(taskId, validation.validTags(tagIds));
+            }
+            if (updateAssignees) {
+                taskRepository.updateTaskAssignments(taskId, validation.validAssignees(assignedUserIds));
             }
 
-            Task updatedTask = taskRepository.updateTask(existingTask);
+            invalidateProject(projectId);
 
             res.setStatusCode(200);
             res.setBody(toJson(Map.of(
                     "success", true,
                     "message", "Task updated successfully",
-                    "id", updatedTask.getId())));
+                    "id", taskId,
+                    "updated_at", updatedAt.toString())));
 
         } catch (Exception e) {
             res.setStatusCode(500);
@@ -325,8 +447,8 @@ public class Handler extends BaseHandler {
             }
 
             // Check if task exists
-            Task existingTask = taskRepository.findById(taskId);
-            if (existingTask == null) {
+            Integer projectId = taskRepository.projectIdOfTask(taskId);
+            if (projectId == null) {
                 res.setStatusCode(404);
                 res.setBody(toJson(Map.of(
                         "error", "Bad Request",
@@ -334,13 +456,10 @@ public class Handler extends BaseHandler {
                 return res;
             }
 
-            Integer projectId = existingTask.getProject().getId();
             // get user id from token
-            User user;
             try{
                 Integer userId = Integer.parseInt(JwtUtil.getUserIdFromToken(token));
-                user = projectRepository.findMemberById(userId, projectId);
-                if (user == null) {
+                if (!projectRepository.isMember(userId, projectId)) {
                     res.setStatusCode(401);
                     res.setBody(toJson(Map.of(
                             "error", "Unauthorized",
@@ -357,6 +476,7 @@ public class Handler extends BaseHandler {
 
             // Delete the task
             taskRepository.deleteTask(taskId);
+            invalidateProject(projectId);
 
             res.setStatusCode(200);
             res.setBody(toJson(Map.of(
@@ -1,6 +1,10 @@
 package com.openfaas.function;
 
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.List;
 
@@ -9,9 +13,13 @@ import com.openfaas.model.IRequest;
 import com.openfaas.model.Response;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.OptimisticLockException;
 
 import com.shared.function.entity.User;
 import com.shared.function.DTL.UserOverview;
+import com.shared.function.CacheBatch;
+import com.shared.function.CacheKeys;
+import com.shared.function.repository.Page;
 import com.shared.function.repository.UserRepository;
 import com.shared.function.JwtUtil;
 import com.shared.function.routing.BaseHandler;
@@ -25,8 +33,9 @@ public class Handler extends BaseHandler {
     public Map<String, RouteHandler> initializeRouteHandlers() {
         Map<String, RouteHandler> handlers = new HashMap<>();
         handlers.put("/", new RouteHandler()
-                .addMethod("GET", req -> handleGetAllUsers(req, new Response()))
-                .addMethod("POST", req -> handleUpdateUser(req, new Response(), req.getHeader("Authorization").substring(7))));
+                .addConditionalMethod("GET", req -> userRepository.findAllVersion(), req -> handleGetAllUsers(req, new Response()))
+                .addMethod("POST", req -> handleUpdateUser(req, new Response(), req.getHeader("Authorization").substring(7)))
+                .addMethod("PATCH", req -> handleUpdateUser(req, new Response(), req.getHeader("Authorization").substring(7))));
         return handlers;
     }
 
@@ -37,9 +46,58 @@ public class Handler extends BaseHandler {
 
     private IResponse handleGetAllUsers(IRequest req, Response res) {
         try {
-            List<UserOverview> users = userRepository.findAll().stream()
-                .map(UserOverview::new)
-                .toList();
+            // e.g. openfaas -> http://<ip_addr>:<port>/function/users?ids=1,2,3
+            String idsParam = req.getQuery() == null ? null : req.getQuery().get("ids");
+            List<UserOverview> users;
+            if (idsParam != null) {
+                List<Integer> ids = new ArrayList<>();
+                try {
+                    for (String id : idsParam.split(",")) {
+                        if (!id.isBlank()) {
+                            ids.add(Integer.parseInt(id.trim()));
+                        }
+                    }
+                } catch (NumberFormatException e) {
+                    res.setStatusCode(400);
+                    res.setBody(toJson(Map.of(
+                        "success", false,
+                        "error", "ids must be a comma separated list of user IDs"
+                    )));
+                    return res;
+                }
+                users = findUserOverviews(ids);
+            } else if (isPageRequest(req)) {
+                // e.g. openfaas -> http://<ip_addr>:<port>/function/users?limit=100&cursor=<next_cursor>
+                Integer limit = pageLimit(req, res);
+                if (limit == null) {
+                    return res;
+                }
+                Page<User> page;
+                try {
+                    page = userRepository.findAll(req.getQuery().get("cursor"), limit);
+                } catch (IllegalArgumentException e) {
+                    return invalidCursor(res);
+                }
+                Map<String, Object> body = new LinkedHashMap<>();
+                body.put("success", true);
+                body.put("users", page.getItems().stream().map(UserOverview::new).toList());
+                body.put("next_cursor", page.getNextCursor());
+                res.setStatusCode(200);
+                res.setBody(toJson(body));
+                return res;
+            } else {
+                // Stream every user straight from the cursor into the body
+                res.setStatusCode(200);
+                res.setBody(streamJson(generator -> {
+                    generator.writeStartObject();
+                    generator.writeBooleanField("success", true);
+                    generator.writeArrayFieldStart("users");
+                    userRepository.forEachUserOverview(writeEach(generator));
+                    generator.writeEndArray();
+                    generator.writeEndObject();
+                }));
+                return res;
+            }
 
             res.setStatusCode(200);
             res.setBody(toJson(Map.of(
@@ -56,6 +114,54 @@ public class Handler extends BaseHandler {
         return res;
     }
 
+    /**
+     * Resolve user overviews with one MGET, loading only the misses with a single IN query.
+     */
+    private List<UserOverview> findUserOverviews(List<Integer> ids) {
+        Map<String, Integer> idByKey = new LinkedHashMap<>();
+        for (Integer id : ids) {
+            idByKey.put(CacheKeys.userOverview(id), id);
+        }
+
+        CacheBatch<UserOverview> cached;
+        try {
+            if (redisCacheClient == null) {
+                throw new IllegalStateException("Redis is not configured");
+            }
+            cached = redisCacheClient.getAll(idByKey.keySet(), UserOverview.class);
+        } catch (Exception e) {
+            System.err.println("WARN: Cache read failed for user overviews: " + e.getMessage());
+            cached = new CacheBatch<>(new HashMap<>(), new ArrayList<>(idByKey.keySet()));
+        }
+
+        Map<String, UserOverview> overviews = new HashMap<>(cached.getFound());
+        if (!cached.getMissing().isEmpty()) {
+            List<Integer> missingIds = cached.getMissing().stream().map(idByKey::get).toList();
+            Map<String, UserOverview> loaded = new HashMap<>();
+            for (User user : userRepository.findAllById(missingIds)) {
+                loaded.put(CacheKeys.userOverview(user.getId()), new UserOverview(user));
+            }
+            overviews.putAll(loaded);
+            try {
+                if (redisCacheClient != null) {
+                    redisCacheClient.setAll(loaded, CacheKeys.USER_OVERVIEW_TTL_SECONDS);
+                }
+            } catch (Exception e) {
+                System.err.println("WARN: Cache write failed for user overviews: " + e.getMessage());
+            }
+        }
+
+        // Keep the requested order and drop ids that do not exist
+        List<UserOverview> result = new ArrayList<>();
+        for (String key : idByKey.keySet()) {
+            UserOverview overview = overviews.get(key);
+            if (overview != null) {
+                result.add(overview);
+            }
+        }
+        return result;
+    }
+
     private IResponse handleUpdateUser(IRequest req, Response res, String token) {
         try {
             Integer userId = validateQueryParam(req, res, "uId", Integer.class);
@@ -89,24 +195,38 @@ public class Handler extends BaseHandler {
                 return res;
             }
 
-            // update user
-            User user = userRepository.findById(userId);
+            // update only the fields that were sent, without loading the user
+            Map<String, Object> changes = new LinkedHashMap<>();
             if (email != null && !email.isEmpty()) {
-                user.setEmail(email);
+                changes.put("email", email);
             }
             if (password != null && !password.isEmpty()) {
-                user.setPassword(password);
+                changes.put("password", password);
             }
             if (userName != null && !userName.isEmpty()) {
-                user.setUserName(userName);
+                changes.put("user_name", userName);
+            }
+            Instant updatedAt;
+            try {
+                updatedAt = userRepository.patchUser(userId, changes, expectedVersion(requestBody));
+            } catch (OptimisticLockException e) {
+                return versionConflict(res, e.getMessage());
+            } catch (DateTimeParseException e) {
+                res.setStatusCode(400);
+                res.setBody(toJson(Map.of(
+                    "success", false,
+                    "error", "Invalid updated_at format"
+                )));
+                return res;
             }
-            userRepository.updateUser(user);
+            cacheEvict(CacheKeys.userOverview(userId));
 
             res.setStatusCode(200);
             res.setBody(toJson(Map.of(
                 "success", true,
                 "message", "User updated successfully",
-                "id", user.getId()
+                "id", userId,
+                "updated_at", updatedAt.toString()
             )));
             return res;
         } catch (Exception e) {